@@ -4,12 +4,19 @@ import com.example.demo.dto.JwtResponse;
 import com.example.demo.dto.LoginRequest;
 import com.example.demo.dto.MessageResponse;
 import com.example.demo.dto.SignupRequest;
+import com.example.demo.dto.TokenRefreshRequest;
 import com.example.demo.model.User;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.security.JwtUtils;
+import com.example.demo.security.PasswordHashingBusyException;
+import com.example.demo.security.PrincipalCache;
+import com.example.demo.security.TokenRevocations;
 import com.example.demo.security.UserPrincipal;
+import io.jsonwebtoken.Claims;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -35,22 +42,31 @@ public class AuthController {
     @Autowired
     JwtUtils jwtUtils;
 
+    @Autowired
+    PrincipalCache principalCache;
+
+    @Autowired
+    TokenRevocations tokenRevocations;
+
     @PostMapping("/signin")
     public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
 
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword()));
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword()));
+        } catch (PasswordHashingBusyException e) {
+            return tooBusy(e);
+        }
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
         String jwt = jwtUtils.generateJwtToken(authentication);
         
         UserPrincipal userDetails = (UserPrincipal) authentication.getPrincipal();
-        
-        // Get the user to access the userType directly
-        User user = userRepository.findById(userDetails.getId()).orElse(null);
-        String userType = user != null ? user.getUserType().name() : "UNKNOWN";
+        String userType = userDetails.getUserType() != null ? userDetails.getUserType().name() : "UNKNOWN";
 
         return ResponseEntity.ok(new JwtResponse(jwt,
+                jwtUtils.generateRefreshToken(userDetails),
                 userDetails.getId(),
                 userDetails.getName(),
                 userDetails.getEmail(),
@@ -64,10 +80,17 @@ public class AuthController {
                     .body(new MessageResponse("Error: Email is already taken!"));
         }
 
+        String encodedPassword;
+        try {
+            encodedPassword = encoder.encode(signUpRequest.getPassword());
+        } catch (PasswordHashingBusyException e) {
+            return tooBusy(e);
+        }
+
         // Create new user's account
         User user = new User(signUpRequest.getName(),
                 signUpRequest.getEmail(),
-                encoder.encode(signUpRequest.getPassword()),
+                encodedPassword,
                 signUpRequest.getPhone(),
                 signUpRequest.getCompany(),
                 signUpRequest.getUserType());
@@ -94,4 +117,72 @@ public class AuthController {
                 userPrincipal.getEmail(),
                 userType));
     }
-}
\ No newline at end of file
+
+    /**
+     * Trades a refresh token for a new access token and a new refresh token.
+     * Each refresh token is good once: it is revoked as it is used.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@Valid @RequestBody TokenRefreshRequest refreshRequest) {
+        Claims claims = jwtUtils.getVerifiedClaims(refreshRequest.getRefreshToken());
+        if (claims == null || !jwtUtils.isRefreshToken(claims)) {
+            return invalidRefreshToken();
+        }
+        UserPrincipal userPrincipal = principalCache.resolve(claims);
+        if (userPrincipal == null) {
+            return invalidRefreshToken();
+        }
+        // Also fails for a used token, and for all but one of two requests racing with the same token
+        if (tokenRevocations.isRevoked(claims) || !tokenRevocations.revoke(claims, userPrincipal.getId())) {
+            return invalidRefreshToken();
+        }
+
+        return ResponseEntity.ok(new JwtResponse(jwtUtils.generateAccessToken(userPrincipal),
+                jwtUtils.generateRefreshToken(userPrincipal),
+                userPrincipal.getId(),
+                userPrincipal.getName(),
+                userPrincipal.getEmail(),
+                userPrincipal.getUserType() != null ? userPrincipal.getUserType().name() : "UNKNOWN"));
+    }
+
+    // Revokes the bearer access token and, when given, the refresh token
+    @PostMapping("/signout")
+    public ResponseEntity<?> signOut(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                     @RequestBody(required = false) TokenRefreshRequest refreshRequest) {
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            Claims access = jwtUtils.getVerifiedClaims(authorization.substring(7));
+            if (access != null && !jwtUtils.isRefreshToken(access)) {
+                tokenRevocations.revoke(access, jwtUtils.getUserIdFromClaims(access));
+            }
+        }
+        if (refreshRequest != null && refreshRequest.getRefreshToken() != null) {
+            Claims refresh = jwtUtils.getVerifiedClaims(refreshRequest.getRefreshToken());
+            if (refresh != null && jwtUtils.isRefreshToken(refresh)) {
+                tokenRevocations.revoke(refresh, jwtUtils.getUserIdFromClaims(refresh));
+            }
+        }
+        return ResponseEntity.ok(new MessageResponse("Signed out successfully!"));
+    }
+
+    // Invalidates every token issued to the user so far, including the one making this request
+    @PostMapping("/signout-all")
+    public ResponseEntity<?> signOutEverywhere(Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserPrincipal userPrincipal)) {
+            return ResponseEntity.badRequest().body(new MessageResponse("User not authenticated"));
+        }
+
+        principalCache.revokeTokens(userPrincipal.getId());
+        return ResponseEntity.ok(new MessageResponse("Signed out of all sessions!"));
+    }
+
+    private ResponseEntity<?> tooBusy(PasswordHashingBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new MessageResponse("Error: Too many sign-ins right now, please try again shortly!"));
+    }
+
+    private ResponseEntity<?> invalidRefreshToken() {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(new MessageResponse("Error: Refresh token is invalid or expired, please sign in again!"));
+    }
+}
@@ -1,19 +1,40 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.IngestReport;
+import com.example.demo.dto.MessageResponse;
 import com.example.demo.model.MarketPrice;
+import com.example.demo.model.MarketPriceRollup;
 import com.example.demo.model.ProductCategory;
+import com.example.demo.model.RollupGranularity;
 import com.example.demo.repository.MarketPriceRepository;
-import com.example.demo.repository.ProductRepository;
+import com.example.demo.series.MarketPriceSeriesStore;
+import com.example.demo.service.MarketPriceHistoryService;
+import com.example.demo.service.MarketPriceIngestService;
+import com.example.demo.service.MarketPriceService;
+import com.example.demo.service.MarketSnapshotService;
+import com.example.demo.service.MarketStatsService;
+import com.example.demo.service.MarketStreamService;
+import com.example.demo.service.RequestCoalescer;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -24,7 +45,28 @@ public class MarketController {
     MarketPriceRepository marketPriceRepository;
 
     @Autowired
-    ProductRepository productRepository;
+    MarketStatsService marketStatsService;
+
+    @Autowired
+    MarketPriceHistoryService marketPriceHistoryService;
+
+    @Autowired
+    MarketPriceService marketPriceService;
+
+    @Autowired
+    MarketPriceIngestService marketPriceIngestService;
+
+    @Autowired
+    MarketPriceSeriesStore marketPriceSeriesStore;
+
+    @Autowired
+    MarketStreamService marketStreamService;
+
+    @Autowired
+    MarketSnapshotService marketSnapshotService;
+
+    @Autowired
+    RequestCoalescer requestCoalescer;
 
     @GetMapping("/prices")
     public ResponseEntity<List<MarketPrice>> getMarketPrices(
@@ -36,62 +78,138 @@ public class MarketController {
         List<MarketPrice> prices;
         
         if (productName != null && !productName.trim().isEmpty()) {
-            prices = marketPriceRepository.findLatestPricesByProductName(
-                productName.trim(), PageRequest.of(0, limit));
+            prices = marketPriceSeriesStore.covers(LocalDateTime.now())
+                ? marketPriceSeriesStore.latest(productName, null, limit) : List.of();
+            // A short answer from memory may be missing ticks older than the store holds, unless it holds every retained one
+            if (prices.size() < limit && !marketPriceSeriesStore.covers(marketPriceService.getRawRetentionCutoff())) {
+                String productKey = MarketPrice.keyOf(productName);
+                prices = requestCoalescer.execute("marketPrices.latestByProductKey", List.of(productKey, limit),
+                    () -> marketPriceRepository.findLatestPricesByProductKey(productKey, PageRequest.of(0, limit)));
+            }
         } else if (category != null) {
-            prices = marketPriceRepository.findLatestPricesByCategory(
-                category, PageRequest.of(0, limit));
+            prices = requestCoalescer.execute("marketPrices.latestByCategory", List.of(category, limit),
+                () -> marketPriceRepository.findLatestPricesByCategory(category, PageRequest.of(0, limit)));
         } else {
-            prices = marketPriceRepository.findAll(
+            prices = requestCoalescer.execute("marketPrices.latest", limit, () -> marketPriceRepository.findAll(
                 PageRequest.of(0, limit, org.springframework.data.domain.Sort.by("recordDate").descending())
-            ).getContent();
+            ).getContent());
         }
         
         return ResponseEntity.ok(prices);
     }
 
+    // Ticks are buffered and written shortly after; a full buffer answers 429 with where to resume.
+    // Ingested prices drive alerts, rollups and listing deviations, so only advisors may feed them.
+    @PreAuthorize("hasRole('ADVISOR')")
+    @PostMapping(value = "/prices/ingest", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+    public ResponseEntity<?> ingestPrices(HttpServletRequest request) {
+        try {
+            IngestReport report = marketPriceIngestService.ingest(
+                request.getInputStream(), MediaType.parseMediaType(request.getContentType()));
+            if (!report.isComplete()) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(marketPriceIngestService.getRetryAfterSeconds()))
+                    .body(report);
+            }
+            return ResponseEntity.accepted().body(report);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest()
+                .body(new MessageResponse("Error: Failed to read price ticks! " + e.getMessage()));
+        }
+    }
+
+    // Matched on the normalized product name, so "Tomato" and " tomato " are the same product
     @GetMapping("/prices/product/{productName}")
-    public ResponseEntity<List<MarketPrice>> getPriceHistoryForProduct(
+    public ResponseEntity<StreamingResponseBody> getPriceHistoryForProduct(
             @PathVariable String productName,
+            @RequestParam(required = false) String region,
             @RequestParam(defaultValue = "30") int days) {
         
         LocalDateTime since = LocalDateTime.now().minusDays(days);
         LocalDateTime now = LocalDateTime.now();
         
-        List<MarketPrice> prices = marketPriceRepository.findPricesBetweenDates(since, now);
-        List<MarketPrice> productPrices = prices.stream()
-            .filter(p -> p.getProductName().toLowerCase().contains(productName.toLowerCase()))
-            .toList();
+        StreamingResponseBody body = marketPriceSeriesStore.covers(since)
+            ? out -> marketPriceHistoryService.writeSeriesHistory(productName, region, since, now, out)
+            : out -> marketPriceHistoryService.writeHistory(productName, region, since, now, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @GetMapping("/rollups/{productName}")
+    public ResponseEntity<List<MarketPriceRollup>> getPriceRollups(
+            @PathVariable String productName,
+            @RequestParam(defaultValue = "DAILY") RollupGranularity granularity,
+            @RequestParam(required = false) String region,
+            @RequestParam(defaultValue = "30") int days) {
         
-        return ResponseEntity.ok(productPrices);
+        return ResponseEntity.ok(marketPriceService.getRollups(productName, region, granularity, days));
     }
 
-    @GetMapping("/trends")
-    public ResponseEntity<Map<String, Object>> getMarketTrends() {
-        Map<String, Object> trends = new HashMap<>();
+    @GetMapping("/rollups/{productName}/summary")
+    public ResponseEntity<Map<String, Object>> getPriceRollupSummary(
+            @PathVariable String productName,
+            @RequestParam(required = false) String region,
+            @RequestParam(defaultValue = "30") int days) {
+        
+        return ResponseEntity.ok(marketPriceService.getSummary(productName, region, days));
+    }
+
+    @GetMapping("/quantiles/{productName}")
+    public ResponseEntity<?> getPriceQuantiles(
+            @PathVariable String productName,
+            @RequestParam(required = false) String region,
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(defaultValue = "10,25,50,75,90") List<Double> percentiles) {
         
-        // Get latest prices by category
-        Map<ProductCategory, List<MarketPrice>> categoryPrices = new HashMap<>();
-        for (ProductCategory category : ProductCategory.values()) {
-            List<MarketPrice> prices = marketPriceRepository.findLatestPricesByCategory(
-                category, PageRequest.of(0, 5));
-            if (!prices.isEmpty()) {
-                categoryPrices.put(category, prices);
+        for (Double percentile : percentiles) {
+            if (percentile == null || percentile < 0 || percentile > 100) {
+                return ResponseEntity.badRequest().body(new MessageResponse("Error: Percentiles must be between 0 and 100!"));
             }
         }
-        
-        trends.put("categoryPrices", categoryPrices);
-        
-        // Get total products available by category
-        Map<ProductCategory, Long> productCounts = new HashMap<>();
-        for (ProductCategory category : ProductCategory.values()) {
-            long count = productRepository.findByCategory(category).size();
-            productCounts.put(category, count);
+        return ResponseEntity.ok(marketPriceService.getQuantiles(productName, region, days, percentiles));
+    }
+
+    /**
+     * Server-sent events of new prices ("price") and product counts
+     * ("category-stats") for the given products and categories, or for
+     * everything when none are given. A client that falls behind receives
+     * only the latest event of each product and region.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMarket(
+            @RequestParam(required = false) List<String> product,
+            @RequestParam(required = false) List<ProductCategory> category) {
+        List<String> topics = new ArrayList<>();
+        if (product != null) {
+            for (String productName : product) {
+                if (!productName.isBlank()) {
+                    topics.add(MarketStreamService.productTopic(productName));
+                }
+            }
         }
-        
-        trends.put("productCounts", productCounts);
-        
-        return ResponseEntity.ok(trends);
+        if (category != null) {
+            for (ProductCategory productCategory : category) {
+                topics.add(MarketStreamService.categoryTopic(productCategory));
+            }
+        }
+
+        SseEmitter emitter = marketStreamService.subscribe(topics, marketStatsService.getProductCounts());
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .build();
+        }
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+            .header("X-Accel-Buffering", "no")
+            .body(emitter);
+    }
+
+    // Served from the last snapshot, at most app.marketSnapshotRefreshMs old as of its asOf
+    @GetMapping("/trends")
+    public ResponseEntity<Map<String, Object>> getMarketTrends() {
+        return ResponseEntity.ok(marketSnapshotService.getSnapshot().trends());
     }
 
     @GetMapping("/average-price/{productName}")
@@ -99,10 +217,10 @@ public class MarketController {
             @PathVariable String productName,
             @RequestParam(defaultValue = "30") int days) {
         
-        LocalDateTime since = LocalDateTime.now().minusDays(days);
-        
-        BigDecimal averagePrice = marketPriceRepository.getAveragePriceForProduct(productName, since)
-            .orElse(BigDecimal.ZERO);
+        // Combines rollups past raw retention with recent ticks, from memory when the store covers them
+        Optional<BigDecimal> average = requestCoalescer.execute("marketPrices.averageForProduct",
+            List.of(productName, days), () -> marketPriceService.getAveragePrice(productName, days));
+        BigDecimal averagePrice = average.orElse(BigDecimal.ZERO);
         
         Map<String, Object> result = new HashMap<>();
         result.put("productName", productName);
@@ -120,26 +238,6 @@ public class MarketController {
 
     @GetMapping("/dashboard-stats")
     public ResponseEntity<Map<String, Object>> getDashboardStats() {
-        Map<String, Object> stats = new HashMap<>();
-        
-        // Total products available
-        long totalProducts = productRepository.count();
-        stats.put("totalProducts", totalProducts);
-        
-        // Products by category
-        Map<ProductCategory, Long> productsByCategory = new HashMap<>();
-        for (ProductCategory category : ProductCategory.values()) {
-            long count = productRepository.findByCategory(category).size();
-            productsByCategory.put(category, count);
-        }
-        stats.put("productsByCategory", productsByCategory);
-        
-        // Recent market activity (last 7 days)
-        LocalDateTime weekAgo = LocalDateTime.now().minusDays(7);
-        LocalDateTime now = LocalDateTime.now();
-        List<MarketPrice> recentPrices = marketPriceRepository.findPricesBetweenDates(weekAgo, now);
-        stats.put("recentMarketActivity", recentPrices.size());
-        
-        return ResponseEntity.ok(stats);
+        return ResponseEntity.ok(marketSnapshotService.getSnapshot().dashboardStats());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,148 @@
+package com.example.demo.controller;
+
+import com.example.demo.security.JwtUtils;
+import com.example.demo.security.PasswordHashingService;
+import com.example.demo.security.PrincipalCache;
+import com.example.demo.security.RateLimiter;
+import com.example.demo.security.TokenRevocations;
+import com.example.demo.series.MarketPriceSeriesStore;
+import com.example.demo.service.IdBlockAllocator;
+import com.example.demo.service.MarketPriceIngestService;
+import com.example.demo.service.MarketReferencePrices;
+import com.example.demo.service.MarketRetentionService;
+import com.example.demo.service.MarketSnapshotService;
+import com.example.demo.service.MarketStreamService;
+import com.example.demo.service.PriceAlertService;
+import com.example.demo.service.ProductCache;
+import com.example.demo.service.RequestCoalescer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    @Autowired
+    ProductCache productCache;
+
+    @Autowired
+    IdBlockAllocator idBlockAllocator;
+
+    @Autowired
+    MarketPriceIngestService marketPriceIngestService;
+
+    @Autowired
+    MarketPriceSeriesStore marketPriceSeriesStore;
+
+    @Autowired
+    PriceAlertService priceAlertService;
+
+    @Autowired
+    MarketStreamService marketStreamService;
+
+    @Autowired
+    MarketSnapshotService marketSnapshotService;
+
+    @Autowired
+    RequestCoalescer requestCoalescer;
+
+    @Autowired
+    MarketRetentionService marketRetentionService;
+
+    @Autowired
+    MarketReferencePrices marketReferencePrices;
+
+    @Autowired
+    JwtUtils jwtUtils;
+
+    @Autowired
+    PrincipalCache principalCache;
+
+    @Autowired
+    PasswordHashingService passwordHashingService;
+
+    @Autowired
+    RateLimiter rateLimiter;
+
+    @Autowired
+    TokenRevocations tokenRevocations;
+
+    @GetMapping("/product-cache")
+    public ResponseEntity<Map<String, Object>> getProductCacheStats() {
+        return ResponseEntity.ok(productCache.getStats());
+    }
+
+    @GetMapping("/id-allocation")
+    public ResponseEntity<Map<String, Object>> getIdAllocationStats() {
+        return ResponseEntity.ok(idBlockAllocator.getStats());
+    }
+
+    @GetMapping("/market-ingest")
+    public ResponseEntity<Map<String, Object>> getMarketIngestStats() {
+        return ResponseEntity.ok(marketPriceIngestService.getStats());
+    }
+
+    @GetMapping("/market-series")
+    public ResponseEntity<Map<String, Object>> getMarketSeriesStats() {
+        return ResponseEntity.ok(marketPriceSeriesStore.getStats());
+    }
+
+    @GetMapping("/price-alerts")
+    public ResponseEntity<Map<String, Object>> getPriceAlertStats() {
+        return ResponseEntity.ok(priceAlertService.getStats());
+    }
+
+    @GetMapping("/market-stream")
+    public ResponseEntity<Map<String, Object>> getMarketStreamStats() {
+        return ResponseEntity.ok(marketStreamService.getStats());
+    }
+
+    @GetMapping("/market-snapshot")
+    public ResponseEntity<Map<String, Object>> getMarketSnapshotStats() {
+        return ResponseEntity.ok(marketSnapshotService.getStats());
+    }
+
+    @GetMapping("/request-coalescing")
+    public ResponseEntity<Map<String, Object>> getRequestCoalescingStats() {
+        return ResponseEntity.ok(requestCoalescer.getStats());
+    }
+
+    @GetMapping("/market-retention")
+    public ResponseEntity<Map<String, Object>> getMarketRetentionStats() {
+        return ResponseEntity.ok(marketRetentionService.getStats());
+    }
+
+    @GetMapping("/market-deviation")
+    public ResponseEntity<Map<String, Object>> getMarketDeviationStats() {
+        return ResponseEntity.ok(marketReferencePrices.getStats());
+    }
+
+    @GetMapping("/jwt-cache")
+    public ResponseEntity<Map<String, Object>> getJwtCacheStats() {
+        return ResponseEntity.ok(jwtUtils.getStats());
+    }
+
+    @GetMapping("/principal-cache")
+    public ResponseEntity<Map<String, Object>> getPrincipalCacheStats() {
+        return ResponseEntity.ok(principalCache.getStats());
+    }
+
+    @GetMapping("/password-hashing")
+    public ResponseEntity<Map<String, Object>> getPasswordHashingStats() {
+        return ResponseEntity.ok(passwordHashingService.getStats());
+    }
+
+    @GetMapping("/rate-limits")
+    public ResponseEntity<Map<String, Object>> getRateLimitStats() {
+        return ResponseEntity.ok(rateLimiter.getStats());
+    }
+
+    @GetMapping("/token-revocations")
+    public ResponseEntity<Map<String, Object>> getTokenRevocationStats() {
+        return ResponseEntity.ok(tokenRevocations.getStats());
+    }
+}
@@ -1,18 +1,28 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.CursorSlice;
+import com.example.demo.dto.KeysetCursor;
 import com.example.demo.dto.MessageResponse;
+import com.example.demo.dto.OrderItemView;
 import com.example.demo.dto.OrderRequest;
+import com.example.demo.dto.OrderView;
+import com.example.demo.dto.ProductView;
 import com.example.demo.model.*;
 import com.example.demo.repository.OrderRepository;
 import com.example.demo.repository.OrderItemRepository;
-import com.example.demo.repository.ProductRepository;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.security.UserPrincipal;
+import com.example.demo.service.InsufficientStockException;
+import com.example.demo.service.OrderService;
+import com.example.demo.service.ProductCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -20,6 +30,10 @@ import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -34,15 +48,24 @@ public class OrderController {
     OrderItemRepository orderItemRepository;
 
     @Autowired
-    ProductRepository productRepository;
+    UserRepository userRepository;
 
     @Autowired
-    UserRepository userRepository;
+    ProductCache productCache;
+
+    @Autowired
+    OrderService orderService;
+
+    private static final Sort ORDER_DATE_DESC = Sort.by("orderDate").descending();
+
+    // The keyset of ORDER_DATE_DESC, with the type each cursor value must have
+    private static final Map<String, Class<?>> CURSOR_KEYS = Map.of("orderDate", LocalDateTime.class, "id", Long.class);
 
     @GetMapping("/my-orders")
-    public ResponseEntity<Page<Order>> getMyOrders(
+    public ResponseEntity<?> getMyOrders(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after) {
         
         // For basic project - return all orders or create demo buyer
         User buyer = userRepository.findByEmail("buyer@demo.com")
@@ -55,43 +78,104 @@ public class OrderController {
                 return userRepository.save(newBuyer);
             });
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by("orderDate").descending());
-        Page<Order> orders = orderRepository.findByBuyer(buyer, pageable);
+        // Presence of "after" (empty for the first page) selects cursor mode
+        if (after != null) {
+            ScrollPosition position = scrollPosition(after);
+            if (position == null) {
+                return ResponseEntity.badRequest().body(new MessageResponse("Error: Invalid cursor!"));
+            }
+            Window<OrderView> orders = orderRepository
+                .findByBuyer(buyer, position, ORDER_DATE_DESC, Limit.of(size))
+                .map(OrderView::from);
+            attachItems(orders.getContent());
+            return ResponseEntity.ok(CursorSlice.from(orders));
+        }
+
+        Pageable pageable = PageRequest.of(page, size, ORDER_DATE_DESC);
+        Page<OrderView> orders = orderRepository.findViewsByBuyerId(buyer.getId(), pageable);
+        attachItems(orders.getContent());
         return ResponseEntity.ok(orders);
     }
 
     @GetMapping("/farmer-orders")
     @PreAuthorize("hasRole('FARMER')")
-    public ResponseEntity<Page<Order>> getFarmerOrders(
+    public ResponseEntity<?> getFarmerOrders(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after,
             Authentication authentication) {
         
         UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
         
-        Pageable pageable = PageRequest.of(page, size, Sort.by("orderDate").descending());
-        Page<Order> orders = orderRepository.findOrdersByFarmerId(userPrincipal.getId(), pageable);
+        if (after != null) {
+            ScrollPosition position = scrollPosition(after);
+            if (position == null) {
+                return ResponseEntity.badRequest().body(new MessageResponse("Error: Invalid cursor!"));
+            }
+            Window<OrderView> orders = orderRepository
+                .findDistinctByOrderItemsProductFarmerId(userPrincipal.getId(), position, ORDER_DATE_DESC, Limit.of(size))
+                .map(OrderView::from);
+            attachItems(orders.getContent());
+            return ResponseEntity.ok(CursorSlice.from(orders));
+        }
+        
+        Pageable pageable = PageRequest.of(page, size, ORDER_DATE_DESC);
+        Page<OrderView> orders = orderRepository.findViewsByFarmerId(userPrincipal.getId(), pageable);
+        attachItems(orders.getContent());
         return ResponseEntity.ok(orders);
     }
 
+    // Loads the lines of every order on a page with a single query
+    private void attachItems(List<OrderView> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+
+        Map<Long, OrderView> byId = new HashMap<>();
+        for (OrderView order : orders) {
+            byId.put(order.getId(), order);
+        }
+        for (OrderItemView item : orderItemRepository.findViewsByOrderIdIn(byId.keySet())) {
+            byId.get(item.getOrderId()).getOrderItems().add(item);
+        }
+    }
+
+    private Optional<OrderView> findOrderView(Long id) {
+        Optional<OrderView> order = orderRepository.findViewById(id);
+        order.ifPresent(view -> attachItems(List.of(view)));
+        return order;
+    }
+
+    // Decodes an "after" token into a keyset position over (orderDate, id); null if it is not one
+    private ScrollPosition scrollPosition(String after) {
+        if (after.isEmpty()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            return ScrollPosition.forward(KeysetCursor.decode(after, CURSOR_KEYS));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Order> getOrderById(@PathVariable Long id, Authentication authentication) {
+    public ResponseEntity<OrderView> getOrderById(@PathVariable Long id, Authentication authentication) {
         UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        Optional<Order> orderOptional = orderRepository.findById(id);
+        Optional<OrderView> orderOptional = findOrderView(id);
         
         if (!orderOptional.isPresent()) {
             return ResponseEntity.notFound().build();
         }
 
-        Order order = orderOptional.get();
+        OrderView order = orderOptional.get();
         
         // Check if user is authorized to view this order (buyer or farmer involved)
-        boolean isAuthorized = order.getBuyer().getId().equals(userPrincipal.getId());
+        boolean isAuthorized = userPrincipal.getId().equals(order.getBuyerId());
         
         if (!isAuthorized) {
             // Check if user is a farmer who has products in this order
             boolean isFarmerInOrder = order.getOrderItems().stream()
-                .anyMatch(item -> item.getProduct().getFarmer().getId().equals(userPrincipal.getId()));
+                .anyMatch(item -> userPrincipal.getId().equals(item.getProduct().getFarmerId()));
             
             if (!isFarmerInOrder) {
                 return ResponseEntity.status(403).build();
@@ -115,18 +199,16 @@ public class OrderController {
                     return userRepository.save(newBuyer);
                 });
 
-            // Calculate total amount and validate products
-            BigDecimal totalAmount = BigDecimal.ZERO;
-            
+            // Fast rejection from the cache; the authoritative stock check happens atomically in OrderService
             for (OrderRequest.OrderItemRequest itemRequest : orderRequest.getItems()) {
-                Optional<Product> productOptional = productRepository.findById(itemRequest.getProductId());
+                Optional<ProductView> productOptional = productCache.findById(itemRequest.getProductId());
                 
                 if (!productOptional.isPresent()) {
                     return ResponseEntity.badRequest()
                         .body(new MessageResponse("Error: Product not found with ID: " + itemRequest.getProductId()));
                 }
 
-                Product product = productOptional.get();
+                ProductView product = productOptional.get();
                 
                 if (product.getStatus() != ProductStatus.AVAILABLE) {
                     return ResponseEntity.badRequest()
@@ -137,38 +219,19 @@ public class OrderController {
                     return ResponseEntity.badRequest()
                         .body(new MessageResponse("Error: Insufficient quantity for product '" + product.getName() + "'"));
                 }
-
-                BigDecimal itemTotal = product.getPricePerUnit().multiply(BigDecimal.valueOf(itemRequest.getQuantity()));
-                totalAmount = totalAmount.add(itemTotal);
             }
 
-            // Create order
-            Order order = new Order(buyer, totalAmount, orderRequest.getDeliveryAddress());
-            order.setNotes(orderRequest.getNotes());
-            Order savedOrder = orderRepository.save(order);
+            Order savedOrder = orderService.placeOrder(buyer, orderRequest);
 
-            // Create order items and update product quantities
-            for (OrderRequest.OrderItemRequest itemRequest : orderRequest.getItems()) {
-                Product product = productRepository.findById(itemRequest.getProductId()).get();
-                
-                OrderItem orderItem = new OrderItem(
-                    savedOrder, 
-                    product, 
-                    itemRequest.getQuantity(), 
-                    product.getPricePerUnit()
-                );
-                orderItemRepository.save(orderItem);
-
-                // Update product quantity
-                product.setQuantityAvailable(product.getQuantityAvailable() - itemRequest.getQuantity());
-                if (product.getQuantityAvailable() == 0) {
-                    product.setStatus(ProductStatus.OUT_OF_STOCK);
-                }
-                productRepository.save(product);
+            OrderView orderView = OrderView.from(savedOrder);
+            for (OrderItem orderItem : savedOrder.getOrderItems()) {
+                orderView.getOrderItems().add(OrderItemView.from(orderItem));
             }
+            return ResponseEntity.ok(orderView);
 
-            return ResponseEntity.ok(savedOrder);
-
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.badRequest()
+                .body(new MessageResponse("Error: " + e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                 .body(new MessageResponse("Error: Failed to create order! " + e.getMessage()));
@@ -199,8 +262,8 @@ public class OrderController {
                 }
             } else {
                 // Check if user is a farmer involved in this order
-                boolean isFarmerInOrder = order.getOrderItems().stream()
-                    .anyMatch(item -> item.getProduct().getFarmer().getId().equals(userPrincipal.getId()));
+                boolean isFarmerInOrder = orderItemRepository.existsByOrderIdAndProductFarmerId(
+                    order.getId(), userPrincipal.getId());
                 
                 if (isFarmerInOrder) {
                     isAuthorized = true;
@@ -213,9 +276,9 @@ public class OrderController {
             }
 
             order.setStatus(status);
-            Order updatedOrder = orderRepository.save(order);
+            orderRepository.save(order);
             
-            return ResponseEntity.ok(updatedOrder);
+            return ResponseEntity.ok(findOrderView(id).get());
 
         } catch (Exception e) {
             return ResponseEntity.badRequest()
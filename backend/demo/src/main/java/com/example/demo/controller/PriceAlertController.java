@@ -0,0 +1,77 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.MessageResponse;
+import com.example.demo.dto.PriceAlertRequest;
+import com.example.demo.model.AlertNotification;
+import com.example.demo.model.PriceAlert;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.security.UserPrincipal;
+import com.example.demo.service.PriceAlertService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/market/alerts")
+public class PriceAlertController {
+
+    @Value("${app.priceAlertMaxWaitSeconds:30}")
+    private int maxWaitSeconds;
+
+    @Autowired
+    PriceAlertService priceAlertService;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @GetMapping
+    public ResponseEntity<List<PriceAlert>> getMyAlerts(Authentication authentication) {
+        return ResponseEntity.ok(priceAlertService.getAlerts(currentUserId(authentication)));
+    }
+
+    @PostMapping
+    public ResponseEntity<?> createAlert(@Valid @RequestBody PriceAlertRequest alertRequest,
+                                         Authentication authentication) {
+        try {
+            PriceAlert alert = priceAlertService.create(
+                userRepository.getReferenceById(currentUserId(authentication)), alertRequest);
+            return ResponseEntity.ok(alert);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> deleteAlert(@PathVariable Long id, Authentication authentication) {
+        if (!priceAlertService.delete(currentUserId(authentication), id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(new MessageResponse("Price alert deleted successfully!"));
+    }
+
+    /**
+     * Notifications after {@code afterId}, oldest first. With {@code waitSeconds}
+     * the request is held until a notification arrives or the wait runs out,
+     * so clients learn of a crossing without polling prices.
+     */
+    @GetMapping("/notifications")
+    public DeferredResult<List<AlertNotification>> getNotifications(
+            @RequestParam(defaultValue = "0") long afterId,
+            @RequestParam(defaultValue = "0") int waitSeconds,
+            Authentication authentication) {
+        
+        int wait = Math.max(0, Math.min(waitSeconds, maxWaitSeconds));
+        return priceAlertService.awaitNotifications(currentUserId(authentication), afterId, wait);
+    }
+
+    private Long currentUserId(Authentication authentication) {
+        return ((UserPrincipal) authentication.getPrincipal()).getId();
+    }
+}
@@ -1,27 +1,52 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.CursorSlice;
+import com.example.demo.dto.ImportReport;
+import com.example.demo.dto.KeysetCursor;
 import com.example.demo.dto.MessageResponse;
 import com.example.demo.dto.ProductRequest;
+import com.example.demo.dto.ProductView;
 import com.example.demo.model.Product;
 import com.example.demo.model.ProductCategory;
 import com.example.demo.model.ProductStatus;
 import com.example.demo.model.User;
 import com.example.demo.repository.ProductRepository;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.search.ProductSearchIndex;
+import com.example.demo.search.SearchOperator;
 import com.example.demo.security.UserPrincipal;
+import com.example.demo.service.MarketReferencePrices;
+import com.example.demo.service.MarketStatsService;
+import com.example.demo.service.ProductCache;
+import com.example.demo.service.ProductImportService;
+import com.example.demo.service.RequestCoalescer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -34,73 +59,175 @@ public class ProductController {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    ProductCache productCache;
+
+    @Autowired
+    ProductImportService productImportService;
+
+    @Autowired
+    MarketStatsService marketStatsService;
+
+    @Autowired
+    RequestCoalescer requestCoalescer;
+
+    @Autowired
+    MarketReferencePrices marketReferencePrices;
+
+    // Sort keys allowed in cursor mode, with the type of their cursor value; each must be non-null so the keyset stays well defined
+    private static final Map<String, Class<?>> CURSOR_SORT_KEYS = Map.of(
+        "createdAt", LocalDateTime.class, "pricePerUnit", BigDecimal.class, "name", String.class, "id", Long.class);
+
+    private static final String BEST_DEAL = "bestDeal";
+
     @GetMapping("/all")
-    public ResponseEntity<Page<Product>> getAllProducts(
+    public ResponseEntity<?> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
             @RequestParam(defaultValue = "desc") String sortDir,
             @RequestParam(required = false) ProductCategory category,
-            @RequestParam(required = false) String search) {
+            @RequestParam(required = false) String search,
+            @RequestParam(defaultValue = "AND") SearchOperator operator,
+            @RequestParam(required = false) String after) {
+        
+        Sort sort;
+        if (BEST_DEAL.equals(sortBy)) {
+            // Furthest below the market first, by the stored deviation; listings without a market price last
+            sort = Sort.by(Sort.Order.asc("marketDeviation").nullsLast(), Sort.Order.asc("id"));
+        } else {
+            sort = sortDir.equalsIgnoreCase("desc") ? 
+                Sort.by(sortBy).descending() : 
+                Sort.by(sortBy).ascending();
+        }
         
-        Sort sort = sortDir.equalsIgnoreCase("desc") ? 
-            Sort.by(sortBy).descending() : 
-            Sort.by(sortBy).ascending();
+        // Presence of "after" (empty for the first page) selects cursor mode
+        if (after != null) {
+            return scrollProducts(after, size, sortBy, sort, category, search, operator);
+        }
             
         Pageable pageable = PageRequest.of(page, size, sort);
         
-        Page<Product> products;
+        Page<ProductView> products;
         
         if (search != null && !search.trim().isEmpty()) {
-            products = productRepository.findAvailableProductsBySearchTerm(
-                ProductStatus.AVAILABLE, search.trim(), pageable);
+            // Search results are ordered by relevance rather than sortBy
+            List<Long> rankedIds = productSearchIndex.search(search.trim(), operator);
+            int from = (int) Math.min(pageable.getOffset(), rankedIds.size());
+            int to = Math.min(from + size, rankedIds.size());
+            products = new PageImpl<>(findInRankOrder(rankedIds.subList(from, to)),
+                PageRequest.of(page, size), rankedIds.size());
         } else if (category != null) {
-            products = productRepository.findByStatusAndCategory(
-                ProductStatus.AVAILABLE, category, pageable);
+            products = requestCoalescer.execute("products.availableByCategory", List.of(category, pageable),
+                () -> productRepository.findViewsByStatusAndCategory(ProductStatus.AVAILABLE, category, pageable));
         } else {
-            products = productRepository.findByStatus(ProductStatus.AVAILABLE, pageable);
+            products = requestCoalescer.execute("products.available", pageable,
+                () -> productRepository.findViewsByStatus(ProductStatus.AVAILABLE, pageable));
         }
         
-        return ResponseEntity.ok(products);
+        return ResponseEntity.ok(products.map(marketReferencePrices::annotate));
+    }
+
+    private ResponseEntity<?> scrollProducts(String after, int size, String sortBy, Sort sort,
+                                             ProductCategory category, String search, SearchOperator operator) {
+        try {
+            if (search != null && !search.trim().isEmpty()) {
+                // Relevance order has no stable column keyset, so the cursor carries the rank reached
+                List<Long> rankedIds = productSearchIndex.search(search.trim(), operator);
+                int from = 0;
+                if (!after.isEmpty()) {
+                    long rank = (Long) KeysetCursor.decode(after, Map.of("rank", Long.class)).get("rank");
+                    if (rank < 0) {
+                        throw new IllegalArgumentException("Cursor has a negative rank");
+                    }
+                    // Results may have shrunk since the cursor was issued; past the end is just an empty page
+                    from = (int) Math.min(rank, rankedIds.size());
+                }
+                int to = Math.min(from + size, rankedIds.size());
+                String nextCursor = to < rankedIds.size() ? KeysetCursor.encode(Map.of("rank", (long) to)) : null;
+                return ResponseEntity.ok(new CursorSlice<>(
+                    marketReferencePrices.annotateAll(findInRankOrder(rankedIds.subList(from, to))), nextCursor));
+            }
+
+            if (!CURSOR_SORT_KEYS.containsKey(sortBy)) {
+                return ResponseEntity.badRequest()
+                    .body(new MessageResponse("Error: Cursor pagination does not support sorting by " + sortBy + "!"));
+            }
+            Map<String, Class<?>> keyTypes = new HashMap<>();
+            keyTypes.put(sortBy, CURSOR_SORT_KEYS.get(sortBy));
+            keyTypes.put("id", Long.class);
+
+            ScrollPosition position = after.isEmpty()
+                ? ScrollPosition.keyset()
+                : ScrollPosition.forward(KeysetCursor.decode(after, keyTypes));
+            Window<Product> window;
+            if (category != null) {
+                window = productRepository.findByStatusAndCategory(
+                    ProductStatus.AVAILABLE, category, position, sort, Limit.of(size));
+            } else {
+                window = productRepository.findByStatus(
+                    ProductStatus.AVAILABLE, position, sort, Limit.of(size));
+            }
+            return ResponseEntity.ok(CursorSlice.from(
+                window.map(product -> marketReferencePrices.annotate(ProductView.from(product)))));
+
+        } catch (IllegalArgumentException | ClassCastException e) {
+            return ResponseEntity.badRequest()
+                .body(new MessageResponse("Error: Invalid cursor!"));
+        }
+    }
+
+    private List<ProductView> findInRankOrder(List<Long> pageIds) {
+        if (pageIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<ProductView> views = requestCoalescer.execute("products.byIds", List.copyOf(pageIds),
+            () -> productRepository.findViewsByIdIn(pageIds));
+        Map<Long, ProductView> byId = views.stream()
+            .collect(Collectors.toMap(ProductView::getId, Function.identity()));
+
+        List<ProductView> content = new ArrayList<>(pageIds.size());
+        for (Long id : pageIds) {
+            ProductView product = byId.get(id);
+            if (product != null) {
+                content.add(product);
+            }
+        }
+        return content;
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
-        Optional<Product> product = productRepository.findById(id);
+    public ResponseEntity<ProductView> getProductById(@PathVariable Long id) {
+        Optional<ProductView> product = productCache.findById(id);
         
         if (product.isPresent()) {
-            return ResponseEntity.ok(product.get());
+            return ResponseEntity.ok(marketReferencePrices.annotate(product.get()));
         } else {
             return ResponseEntity.notFound().build();
         }
     }
 
     @GetMapping("/farmer/{farmerId}")
-    public ResponseEntity<List<Product>> getProductsByFarmer(@PathVariable Long farmerId) {
-        List<Product> products = productRepository.findByFarmerId(farmerId);
+    public ResponseEntity<List<ProductView>> getProductsByFarmer(@PathVariable Long farmerId) {
+        List<ProductView> products = productRepository.findViewsByFarmerId(farmerId);
         return ResponseEntity.ok(products);
     }
 
     @GetMapping("/my-products")
-    public ResponseEntity<List<Product>> getMyProducts() {
+    public ResponseEntity<List<ProductView>> getMyProducts() {
         // For basic project - return all available products (no user authentication needed)
-        List<Product> products = productRepository.findByStatus(ProductStatus.AVAILABLE);
-        return ResponseEntity.ok(products);
+        List<ProductView> products = productRepository.findViewsByStatus(ProductStatus.AVAILABLE);
+        return ResponseEntity.ok(marketReferencePrices.annotateAll(products));
     }
 
     @PostMapping("/add")
     public ResponseEntity<?> addProduct(@Valid @RequestBody ProductRequest productRequest) {
         try {
-            // For basic project - create a default farmer user if none exists
-            User farmer = userRepository.findByEmail("farmer@demo.com")
-                .orElseGet(() -> {
-                    User newFarmer = new User();
-                    newFarmer.setName("Demo Farmer");
-                    newFarmer.setEmail("farmer@demo.com");
-                    newFarmer.setPassword("password");
-                    newFarmer.setUserType(com.example.demo.model.UserType.FARMER);
-                    return userRepository.save(newFarmer);
-                });
+            User farmer = demoFarmer();
 
             Product product = new Product(
                 productRequest.getName(),
@@ -117,9 +244,13 @@ public class ProductController {
             product.setHarvestDate(productRequest.getHarvestDate());
             product.setExpiryDate(productRequest.getExpiryDate());
             product.setQuality(productRequest.getQuality());
+            product.setMarketDeviation(marketReferencePrices.deviationFor(
+                product.getName(), product.getLocation(), product.getPricePerUnit()));
 
             Product savedProduct = productRepository.save(product);
-            return ResponseEntity.ok(savedProduct);
+            productSearchIndex.index(savedProduct);
+            marketStatsService.productAdded(savedProduct.getCategory());
+            return ResponseEntity.ok(marketReferencePrices.annotate(ProductView.from(savedProduct)));
 
         } catch (Exception e) {
             return ResponseEntity.badRequest()
@@ -127,6 +258,39 @@ public class ProductController {
         }
     }
 
+    /**
+     * Bulk counterpart of {@link #addProduct}: one listing per CSV record or
+     * NDJSON line, using the {@link ProductRequest} field names (CSV takes them
+     * from the header row). The body is streamed, and the response lists the
+     * rows that were rejected and why.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<?> importProducts(HttpServletRequest request) {
+        try {
+            ImportReport report = productImportService.importProducts(
+                request.getInputStream(), MediaType.parseMediaType(request.getContentType()), demoFarmer());
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest()
+                .body(new MessageResponse("Error: Failed to read import! " + e.getMessage()));
+        }
+    }
+
+    // For basic project - create a default farmer user if none exists
+    private User demoFarmer() {
+        return userRepository.findByEmail("farmer@demo.com")
+            .orElseGet(() -> {
+                User newFarmer = new User();
+                newFarmer.setName("Demo Farmer");
+                newFarmer.setEmail("farmer@demo.com");
+                newFarmer.setPassword("password");
+                newFarmer.setUserType(com.example.demo.model.UserType.FARMER);
+                return userRepository.save(newFarmer);
+            });
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('FARMER')")
     public ResponseEntity<?> updateProduct(@PathVariable Long id, 
@@ -149,6 +313,7 @@ public class ProductController {
             }
 
             // Update product fields
+            ProductCategory previousCategory = product.getCategory();
             product.setName(productRequest.getName());
             product.setDescription(productRequest.getDescription());
             product.setCategory(productRequest.getCategory());
@@ -160,9 +325,14 @@ public class ProductController {
             product.setHarvestDate(productRequest.getHarvestDate());
             product.setExpiryDate(productRequest.getExpiryDate());
             product.setQuality(productRequest.getQuality());
+            product.setMarketDeviation(marketReferencePrices.deviationFor(
+                product.getName(), product.getLocation(), product.getPricePerUnit()));
 
             Product updatedProduct = productRepository.save(product);
-            return ResponseEntity.ok(updatedProduct);
+            productSearchIndex.index(updatedProduct);
+            productCache.evict(id);
+            marketStatsService.productRecategorized(previousCategory, updatedProduct.getCategory());
+            return ResponseEntity.ok(marketReferencePrices.annotate(ProductView.from(updatedProduct)));
 
         } catch (Exception e) {
             return ResponseEntity.badRequest()
@@ -182,6 +352,9 @@ public class ProductController {
             
             // For basic project - allow deletion of any product
             productRepository.delete(product);
+            productSearchIndex.remove(id);
+            productCache.evict(id);
+            marketStatsService.productRemoved(product.getCategory());
             return ResponseEntity.ok(new MessageResponse("Product deleted successfully!"));
 
         } catch (Exception e) {
@@ -213,7 +386,9 @@ public class ProductController {
 
             product.setStatus(status);
             Product updatedProduct = productRepository.save(product);
-            return ResponseEntity.ok(updatedProduct);
+            productSearchIndex.index(updatedProduct);
+            productCache.evict(id);
+            return ResponseEntity.ok(ProductView.from(updatedProduct));
 
         } catch (Exception e) {
             return ResponseEntity.badRequest()
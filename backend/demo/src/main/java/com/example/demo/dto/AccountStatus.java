@@ -0,0 +1,31 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.UserType;
+
+import java.time.LocalDateTime;
+
+// What token authentication needs to know about a user beyond the token itself
+public class AccountStatus {
+    private final Long userId;
+    private final UserType userType;
+    private final LocalDateTime tokensValidAfter;
+
+    public AccountStatus(Long userId, UserType userType, LocalDateTime tokensValidAfter) {
+        this.userId = userId;
+        this.userType = userType;
+        this.tokensValidAfter = tokensValidAfter;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public UserType getUserType() {
+        return userType;
+    }
+
+    // Tokens issued up to this time are rejected; null when none were revoked
+    public LocalDateTime getTokensValidAfter() {
+        return tokensValidAfter;
+    }
+}
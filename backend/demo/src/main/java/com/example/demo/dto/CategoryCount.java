@@ -0,0 +1,22 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.ProductCategory;
+
+// One row of a GROUP BY category count
+public class CategoryCount {
+    private final ProductCategory category;
+    private final long count;
+
+    public CategoryCount(ProductCategory category, Long count) {
+        this.category = category;
+        this.count = count;
+    }
+
+    public ProductCategory getCategory() {
+        return category;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
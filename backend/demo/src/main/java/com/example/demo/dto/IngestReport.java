@@ -0,0 +1,27 @@
+package com.example.demo.dto;
+
+/**
+ * Outcome of a price ingest. {@code imported} counts ticks accepted into the
+ * ingest buffer. When the buffer was full, reading stopped and
+ * {@code resumeAtLine} is the first line (or array element, counted from 1)
+ * that was not taken; everything before it has been counted.
+ */
+public class IngestReport extends ImportReport {
+    private Long resumeAtLine;
+
+    public IngestReport(int maxErrors) {
+        super(maxErrors);
+    }
+
+    public void stoppedAt(long line) {
+        resumeAtLine = line;
+    }
+
+    public boolean isComplete() {
+        return resumeAtLine == null;
+    }
+
+    public Long getResumeAtLine() {
+        return resumeAtLine;
+    }
+}
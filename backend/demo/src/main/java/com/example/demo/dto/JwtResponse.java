@@ -2,6 +2,7 @@ package com.example.demo.dto;
 
 public class JwtResponse {
     private String token;
+    private String refreshToken;
     private String type = "Bearer";
     private Long id;
     private String name;
@@ -16,6 +17,11 @@ public class JwtResponse {
         this.userType = userType;
     }
 
+    public JwtResponse(String accessToken, String refreshToken, Long id, String name, String email, String userType) {
+        this(accessToken, id, name, email, userType);
+        this.refreshToken = refreshToken;
+    }
+
     public String getToken() {
         return token;
     }
@@ -24,6 +30,14 @@ public class JwtResponse {
         this.token = token;
     }
 
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
     public String getType() {
         return type;
     }
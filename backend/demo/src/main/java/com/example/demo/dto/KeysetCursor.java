@@ -0,0 +1,101 @@
+package com.example.demo.dto;
+
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encodes the keyset of the last row of a page (sort key values plus id) into
+ * the opaque {@code after} token handed to clients, and decodes it again.
+ * Entries are separated by newlines and keys from values by tabs; string
+ * values are URL-encoded, so a name containing either cannot split an entry.
+ */
+public final class KeysetCursor {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private KeysetCursor() {}
+
+    public static String encode(Map<String, ?> keys) {
+        StringBuilder raw = new StringBuilder();
+        for (Map.Entry<String, ?> entry : keys.entrySet()) {
+            if (raw.length() > 0) {
+                raw.append('\n');
+            }
+            raw.append(entry.getKey()).append('\t').append(encodeValue(entry.getValue()));
+        }
+        return ENCODER.encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Map<String, Object> decode(String token) {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        try {
+            String raw = new String(DECODER.decode(token), StandardCharsets.UTF_8);
+            for (String line : raw.split("\n")) {
+                int tab = line.indexOf('\t');
+                keys.put(line.substring(0, tab), decodeValue(line.substring(tab + 1)));
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        return keys;
+    }
+
+    /**
+     * Decodes a token that must hold exactly the keys of {@code types}, each
+     * with a value of its type, as a position the query can bind. Throws
+     * IllegalArgumentException for anything else, such as a forged cursor or
+     * one issued for another sort.
+     */
+    public static Map<String, Object> decode(String token, Map<String, Class<?>> types) {
+        Map<String, Object> keys = decode(token);
+        if (!keys.keySet().equals(types.keySet())) {
+            throw new IllegalArgumentException("Cursor keys " + keys.keySet() + " do not match " + types.keySet());
+        }
+        for (Map.Entry<String, Object> entry : keys.entrySet()) {
+            if (!types.get(entry.getKey()).isInstance(entry.getValue())) {
+                throw new IllegalArgumentException("Cursor value for " + entry.getKey() + " has the wrong type");
+            }
+        }
+        return keys;
+    }
+
+    private static String encodeValue(Object value) {
+        if (value instanceof Long) {
+            return "l:" + value;
+        } else if (value instanceof Integer) {
+            return "i:" + value;
+        } else if (value instanceof BigDecimal) {
+            return "d:" + ((BigDecimal) value).toPlainString();
+        } else if (value instanceof LocalDateTime) {
+            return "t:" + value;
+        } else if (value instanceof String) {
+            return "s:" + URLEncoder.encode((String) value, StandardCharsets.UTF_8);
+        }
+        throw new IllegalArgumentException("Unsupported cursor value: " + value);
+    }
+
+    private static Object decodeValue(String encoded) {
+        String value = encoded.substring(2);
+        switch (encoded.charAt(0)) {
+            case 'l':
+                return Long.valueOf(value);
+            case 'i':
+                return Integer.valueOf(value);
+            case 'd':
+                return new BigDecimal(value);
+            case 't':
+                return LocalDateTime.parse(value);
+            case 's':
+                return URLDecoder.decode(value, StandardCharsets.UTF_8);
+            default:
+                throw new IllegalArgumentException("Unsupported cursor value: " + encoded);
+        }
+    }
+}
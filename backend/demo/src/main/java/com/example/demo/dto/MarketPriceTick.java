@@ -0,0 +1,120 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.MarketPrice;
+import com.example.demo.model.ProductCategory;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One price observation from a market feed. {@code recordDate} defaults to
+ * the time the tick is accepted.
+ */
+public class MarketPriceTick {
+    @NotNull
+    private ProductCategory category;
+
+    @NotBlank
+    @Size(max = 100)
+    private String productName;
+
+    @NotNull
+    @Positive
+    private BigDecimal averagePrice;
+
+    @NotNull
+    @Positive
+    private BigDecimal minPrice;
+
+    @NotNull
+    @Positive
+    private BigDecimal maxPrice;
+
+    @Size(max = 100)
+    private String region;
+
+    @PositiveOrZero
+    private Integer totalQuantityTraded;
+
+    private LocalDateTime recordDate;
+
+    public MarketPriceTick() {}
+
+    public MarketPrice toMarketPrice() {
+        MarketPrice price = new MarketPrice(category, productName, averagePrice, minPrice, maxPrice,
+            region, totalQuantityTraded);
+        if (recordDate != null) {
+            price.setRecordDate(recordDate);
+        }
+        return price;
+    }
+
+    // Getters and Setters
+    public ProductCategory getCategory() {
+        return category;
+    }
+
+    public void setCategory(ProductCategory category) {
+        this.category = category;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public BigDecimal getAveragePrice() {
+        return averagePrice;
+    }
+
+    public void setAveragePrice(BigDecimal averagePrice) {
+        this.averagePrice = averagePrice;
+    }
+
+    public BigDecimal getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(BigDecimal minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public BigDecimal getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(BigDecimal maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    public Integer getTotalQuantityTraded() {
+        return totalQuantityTraded;
+    }
+
+    public void setTotalQuantityTraded(Integer totalQuantityTraded) {
+        this.totalQuantityTraded = totalQuantityTraded;
+    }
+
+    public LocalDateTime getRecordDate() {
+        return recordDate;
+    }
+
+    public void setRecordDate(LocalDateTime recordDate) {
+        this.recordDate = recordDate;
+    }
+}
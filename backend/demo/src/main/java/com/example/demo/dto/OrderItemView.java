@@ -0,0 +1,93 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.OrderItem;
+import com.example.demo.model.Product;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.math.BigDecimal;
+
+/**
+ * Read model for an order line, loaded for a whole page of orders in one
+ * query. The ordered product is reduced to the few fields clients display.
+ */
+public class OrderItemView {
+    private final Long id;
+    private final Long orderId;
+    private final ProductRef product;
+    private final Integer quantity;
+    private final BigDecimal unitPrice;
+    private final BigDecimal totalPrice;
+
+    public OrderItemView(Long id, Long orderId, Long productId, String productName, String productUnit,
+                         Long farmerId, Integer quantity, BigDecimal unitPrice, BigDecimal totalPrice) {
+        this.id = id;
+        this.orderId = orderId;
+        this.product = new ProductRef(productId, productName, productUnit, farmerId);
+        this.quantity = quantity;
+        this.unitPrice = unitPrice;
+        this.totalPrice = totalPrice;
+    }
+
+    // For lines just written, whose product is already loaded
+    public static OrderItemView from(OrderItem orderItem) {
+        Product product = orderItem.getProduct();
+        return new OrderItemView(orderItem.getId(), orderItem.getOrder().getId(),
+            product.getId(), product.getName(), product.getUnit(),
+            product.getFarmer() != null ? product.getFarmer().getId() : null,
+            orderItem.getQuantity(), orderItem.getUnitPrice(), orderItem.getTotalPrice());
+    }
+
+    public static class ProductRef {
+        private final Long id;
+        private final String name;
+        private final String unit;
+        private final Long farmerId;
+
+        public ProductRef(Long id, String name, String unit, Long farmerId) {
+            this.id = id;
+            this.name = name;
+            this.unit = unit;
+            this.farmerId = farmerId;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getUnit() {
+            return unit;
+        }
+
+        public Long getFarmerId() {
+            return farmerId;
+        }
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    @JsonIgnore
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public ProductRef getProduct() {
+        return product;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public BigDecimal getUnitPrice() {
+        return unitPrice;
+    }
+
+    public BigDecimal getTotalPrice() {
+        return totalPrice;
+    }
+}
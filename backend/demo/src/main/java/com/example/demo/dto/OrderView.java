@@ -0,0 +1,105 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.Order;
+import com.example.demo.model.OrderStatus;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read model for order responses. The order row and buyer come from one
+ * constructor query; the lines are attached afterwards from a single
+ * {@link OrderItemView} query covering every order on the page.
+ */
+public class OrderView {
+    private final Long id;
+    private final OrderStatus status;
+    private final BigDecimal totalAmount;
+    private final String deliveryAddress;
+    private final LocalDateTime orderDate;
+    private final LocalDateTime deliveryDate;
+    private final String notes;
+    private final Long buyerId;
+    private final String buyerName;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private List<OrderItemView> orderItems = new ArrayList<>();
+
+    public OrderView(Long id, OrderStatus status, BigDecimal totalAmount, String deliveryAddress,
+                     LocalDateTime orderDate, LocalDateTime deliveryDate, String notes,
+                     Long buyerId, String buyerName, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.status = status;
+        this.totalAmount = totalAmount;
+        this.deliveryAddress = deliveryAddress;
+        this.orderDate = orderDate;
+        this.deliveryDate = deliveryDate;
+        this.notes = notes;
+        this.buyerId = buyerId;
+        this.buyerName = buyerName;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    // For entities already loaded with their buyer
+    public static OrderView from(Order order) {
+        return new OrderView(order.getId(), order.getStatus(), order.getTotalAmount(),
+            order.getDeliveryAddress(), order.getOrderDate(), order.getDeliveryDate(), order.getNotes(),
+            order.getBuyer() != null ? order.getBuyer().getId() : null,
+            order.getBuyer() != null ? order.getBuyer().getName() : null,
+            order.getCreatedAt(), order.getUpdatedAt());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public String getDeliveryAddress() {
+        return deliveryAddress;
+    }
+
+    public LocalDateTime getOrderDate() {
+        return orderDate;
+    }
+
+    public LocalDateTime getDeliveryDate() {
+        return deliveryDate;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public Long getBuyerId() {
+        return buyerId;
+    }
+
+    public String getBuyerName() {
+        return buyerName;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public List<OrderItemView> getOrderItems() {
+        return orderItems;
+    }
+
+    public void setOrderItems(List<OrderItemView> orderItems) {
+        this.orderItems = orderItems;
+    }
+}
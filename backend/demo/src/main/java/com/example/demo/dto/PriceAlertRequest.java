@@ -0,0 +1,61 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.AlertCondition;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import java.math.BigDecimal;
+
+public class PriceAlertRequest {
+    @NotBlank
+    @Size(max = 100)
+    private String productName;
+
+    // Leave empty to watch every region
+    @Size(max = 100)
+    private String region;
+
+    @NotNull
+    private AlertCondition condition;
+
+    // A price for ABOVE and BELOW, a percentage for PERCENT_MOVE
+    @NotNull
+    @Positive
+    private BigDecimal threshold;
+
+    public PriceAlertRequest() {}
+
+    // Getters and Setters
+    public String getProductName() {
+        return productName;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    public AlertCondition getCondition() {
+        return condition;
+    }
+
+    public void setCondition(AlertCondition condition) {
+        this.condition = condition;
+    }
+
+    public BigDecimal getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(BigDecimal threshold) {
+        this.threshold = threshold;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.demo.dto;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Sum and count of prices, which unlike averages can be added across sources
+public class PriceTotals {
+    private final BigDecimal sum;
+    private final long count;
+
+    public PriceTotals(BigDecimal sum, Long count) {
+        this.sum = sum == null ? BigDecimal.ZERO : sum;
+        this.count = count == null ? 0 : count;
+    }
+
+    public PriceTotals plus(PriceTotals other) {
+        return new PriceTotals(sum.add(other.sum), count + other.count);
+    }
+
+    // Null when there is nothing to average
+    public BigDecimal average(int scale) {
+        return count == 0 ? null : sum.divide(BigDecimal.valueOf(count), scale, RoundingMode.HALF_UP);
+    }
+
+    public BigDecimal getSum() {
+        return sum;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.Product;
+import com.example.demo.model.ProductCategory;
+import com.example.demo.model.ProductStatus;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read model for product list and detail responses. Built directly by JPQL
+ * constructor queries that join the farmer, so serializing it never touches a
+ * lazy association.
+ */
+public class ProductView {
+    private final Long id;
+    private final String name;
+    private final String description;
+    private final ProductCategory category;
+    private final BigDecimal pricePerUnit;
+    private final String unit;
+    private final Integer quantityAvailable;
+    private final String location;
+    private final String imageUrl;
+    private final ProductStatus status;
+    private final LocalDateTime harvestDate;
+    private final LocalDateTime expiryDate;
+    private final String quality;
+    private final Long farmerId;
+    private final String farmerName;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+
+    // Latest market price of the product in its location, or anywhere; null when there is none
+    private final BigDecimal marketPrice;
+
+    // Percent above (positive) or below the market price
+    private final BigDecimal marketDeviation;
+
+    public ProductView(Long id, String name, String description, ProductCategory category,
+                       BigDecimal pricePerUnit, String unit, Integer quantityAvailable, String location,
+                       String imageUrl, ProductStatus status, LocalDateTime harvestDate, LocalDateTime expiryDate,
+                       String quality, Long farmerId, String farmerName,
+                       LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, name, description, category, pricePerUnit, unit, quantityAvailable, location, imageUrl, status,
+            harvestDate, expiryDate, quality, farmerId, farmerName, createdAt, updatedAt, null, null);
+    }
+
+    private ProductView(Long id, String name, String description, ProductCategory category,
+                        BigDecimal pricePerUnit, String unit, Integer quantityAvailable, String location,
+                        String imageUrl, ProductStatus status, LocalDateTime harvestDate, LocalDateTime expiryDate,
+                        String quality, Long farmerId, String farmerName,
+                        LocalDateTime createdAt, LocalDateTime updatedAt,
+                        BigDecimal marketPrice, BigDecimal marketDeviation) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.category = category;
+        this.pricePerUnit = pricePerUnit;
+        this.unit = unit;
+        this.quantityAvailable = quantityAvailable;
+        this.location = location;
+        this.imageUrl = imageUrl;
+        this.status = status;
+        this.harvestDate = harvestDate;
+        this.expiryDate = expiryDate;
+        this.quality = quality;
+        this.farmerId = farmerId;
+        this.farmerName = farmerName;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.marketPrice = marketPrice;
+        this.marketDeviation = marketDeviation;
+    }
+
+    // For entities already loaded with their farmer
+    public static ProductView from(Product product) {
+        return new ProductView(product.getId(), product.getName(), product.getDescription(),
+            product.getCategory(), product.getPricePerUnit(), product.getUnit(),
+            product.getQuantityAvailable(), product.getLocation(), product.getImageUrl(),
+            product.getStatus(), product.getHarvestDate(), product.getExpiryDate(), product.getQuality(),
+            product.getFarmer() != null ? product.getFarmer().getId() : null,
+            product.getFarmer() != null ? product.getFarmer().getName() : null,
+            product.getCreatedAt(), product.getUpdatedAt());
+    }
+
+    // Views are shared by caches, so annotating returns a copy
+    public ProductView withMarketPrice(BigDecimal marketPrice, BigDecimal marketDeviation) {
+        return new ProductView(id, name, description, category, pricePerUnit, unit, quantityAvailable, location,
+            imageUrl, status, harvestDate, expiryDate, quality, farmerId, farmerName, createdAt, updatedAt,
+            marketPrice, marketDeviation);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public ProductCategory getCategory() {
+        return category;
+    }
+
+    public BigDecimal getPricePerUnit() {
+        return pricePerUnit;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    public Integer getQuantityAvailable() {
+        return quantityAvailable;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public ProductStatus getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getHarvestDate() {
+        return harvestDate;
+    }
+
+    public LocalDateTime getExpiryDate() {
+        return expiryDate;
+    }
+
+    public String getQuality() {
+        return quality;
+    }
+
+    public Long getFarmerId() {
+        return farmerId;
+    }
+
+    public String getFarmerName() {
+        return farmerName;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public BigDecimal getMarketPrice() {
+        return marketPrice;
+    }
+
+    public BigDecimal getMarketDeviation() {
+        return marketDeviation;
+    }
+
+    // Null when there is no market price to compare with
+    public Boolean getBelowMarket() {
+        return marketDeviation == null ? null : marketDeviation.signum() < 0;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.demo.model;
+
+public enum AlertCondition {
+    ABOVE,        // price reaches or exceeds the threshold
+    BELOW,        // price falls to or under the threshold
+    PERCENT_MOVE  // price moves by threshold percent from the reference price, either way
+}
@@ -0,0 +1,118 @@
+package com.example.demo.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One firing of a {@link PriceAlert}, queued for its owner. Ids increase in
+ * the order notifications are created, so a client reads its queue by
+ * asking for everything after the last id it has seen.
+ */
+@Entity
+@Table(name = "alert_notifications",
+       indexes = {
+           @Index(name = "idx_alert_notifications_user", columnList = "user_id, id")
+       })
+public class AlertNotification {
+    @Id
+    @PooledId("alert_notifications")
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    // Kept as a plain id so notifications outlive a deleted alert
+    @Column(name = "alert_id")
+    private Long alertId;
+
+    private String productName;
+
+    private String region;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "alert_condition", length = 20)
+    private AlertCondition condition;
+
+    private BigDecimal threshold;
+
+    private BigDecimal price;
+
+    private LocalDateTime recordDate;
+
+    private String message;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    public AlertNotification() {}
+
+    public AlertNotification(PriceAlert alert, MarketPrice price, String message) {
+        this.user = alert.getUser();
+        this.alertId = alert.getId();
+        this.productName = price.getProductName();
+        this.region = price.getRegion();
+        this.condition = alert.getCondition();
+        this.threshold = alert.getThreshold();
+        this.price = price.getAveragePrice();
+        this.recordDate = price.getRecordDate();
+        this.message = message;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public Long getAlertId() {
+        return alertId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public AlertCondition getCondition() {
+        return condition;
+    }
+
+    public BigDecimal getThreshold() {
+        return threshold;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public LocalDateTime getRecordDate() {
+        return recordDate;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+
+/**
+ * High-water mark of one id sequence. Only written by
+ * {@link com.example.demo.service.IdBlockAllocator}; mapped so the table is
+ * created with the rest of the schema.
+ */
+@Entity
+@Table(name = "id_blocks")
+public class IdBlock {
+    @Id
+    @Column(name = "sequence_name", length = 64)
+    private String sequenceName;
+
+    @Column(name = "next_val", nullable = false)
+    private Long nextVal;
+
+    public IdBlock() {}
+
+    public String getSequenceName() {
+        return sequenceName;
+    }
+
+    public void setSequenceName(String sequenceName) {
+        this.sequenceName = sequenceName;
+    }
+
+    public Long getNextVal() {
+        return nextVal;
+    }
+
+    public void setNextVal(Long nextVal) {
+        this.nextVal = nextVal;
+    }
+}
@@ -1,16 +1,22 @@
 package com.example.demo.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Locale;
 
 @Entity
-@Table(name = "market_prices")
+@Table(name = "market_prices",
+       indexes = {
+           @Index(name = "idx_market_prices_product_date", columnList = "product_key, record_date"),
+           @Index(name = "idx_market_prices_record_date", columnList = "record_date")
+       })
 public class MarketPrice {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledId("market_prices")
     private Long id;
 
     @NotNull
@@ -20,6 +26,11 @@ public class MarketPrice {
     @NotNull
     private String productName;
 
+    // Normalized productName, the indexed lookup key for price history
+    @JsonIgnore
+    @Column(name = "product_key")
+    private String productKey;
+
     @NotNull
     @Positive
     private BigDecimal averagePrice;
@@ -34,8 +45,14 @@ public class MarketPrice {
 
     private String region; // Location/market region
 
+    // Normalized region, so region filters match however the region was spelled
+    @JsonIgnore
+    @Column(name = "region_key")
+    private String regionKey;
+
     private Integer totalQuantityTraded;
 
+    @Column(name = "record_date")
     private LocalDateTime recordDate;
 
     @Column(name = "created_at")
@@ -47,10 +64,12 @@ public class MarketPrice {
                        BigDecimal minPrice, BigDecimal maxPrice, String region, Integer totalQuantityTraded) {
         this.category = category;
         this.productName = productName;
+        this.productKey = keyOf(productName);
         this.averagePrice = averagePrice;
         this.minPrice = minPrice;
         this.maxPrice = maxPrice;
         this.region = region;
+        this.regionKey = regionKeyOf(region);
         this.totalQuantityTraded = totalQuantityTraded;
         this.recordDate = LocalDateTime.now();
     }
@@ -58,11 +77,29 @@ public class MarketPrice {
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        productKey = keyOf(productName);
+        regionKey = regionKeyOf(region);
         if (recordDate == null) {
             recordDate = LocalDateTime.now();
         }
     }
 
+    /**
+     * Lookup key for a product name: trimmed, lower-cased, inner whitespace
+     * collapsed. Queries must normalize their input the same way.
+     */
+    public static String keyOf(String productName) {
+        if (productName == null) {
+            return null;
+        }
+        return productName.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    // Lookup key for a region, normalized like keyOf; prices without a region share the empty key
+    public static String regionKeyOf(String region) {
+        return region == null ? "" : keyOf(region);
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -86,6 +123,11 @@ public class MarketPrice {
 
     public void setProductName(String productName) {
         this.productName = productName;
+        this.productKey = keyOf(productName);
+    }
+
+    public String getProductKey() {
+        return productKey;
     }
 
     public BigDecimal getAveragePrice() {
@@ -118,6 +160,11 @@ public class MarketPrice {
 
     public void setRegion(String region) {
         this.region = region;
+        this.regionKey = regionKeyOf(region);
+    }
+
+    public String getRegionKey() {
+        return regionKey;
     }
 
     public Integer getTotalQuantityTraded() {
@@ -0,0 +1,242 @@
+package com.example.demo.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Open/high/low/close and volume of one product's prices over one bucket,
+ * either in one region or, with {@link #ALL_REGIONS}, across all of them.
+ * Maintained incrementally as prices are recorded, so charts over long
+ * ranges read one row per bucket instead of every price tick.
+ */
+@Entity
+@Table(name = "market_price_rollups",
+       uniqueConstraints = {
+           @UniqueConstraint(name = "uk_market_price_rollups_bucket",
+                             columnNames = {"product_key", "region_key", "granularity", "bucket_start"})
+       })
+public class MarketPriceRollup {
+    public static final String ALL_REGIONS = "*";
+
+    @Id
+    @PooledId("market_price_rollups")
+    private Long id;
+
+    @JsonIgnore
+    @Column(name = "product_key", nullable = false)
+    private String productKey;
+
+    @JsonIgnore
+    @Column(name = "region_key", nullable = false)
+    private String regionKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", nullable = false, length = 10)
+    private RollupGranularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDate bucketStart;
+
+    // Display names as last recorded; region is null for the all-regions rollup
+    private String productName;
+
+    private String region;
+
+    private BigDecimal openPrice;
+
+    private LocalDateTime openTime;
+
+    private BigDecimal highPrice;
+
+    private BigDecimal lowPrice;
+
+    private BigDecimal closePrice;
+
+    private LocalDateTime closeTime;
+
+    private long tickCount;
+
+    @JsonIgnore
+    private BigDecimal priceSum = BigDecimal.ZERO;
+
+    // Sum of averagePrice * totalQuantityTraded, for the volume-weighted average
+    @JsonIgnore
+    private BigDecimal weightedPriceSum = BigDecimal.ZERO;
+
+    private long totalQuantityTraded;
+
+    // Sketch of the tick prices, kept on daily buckets only; see PriceSketch.toBytes
+    @JsonIgnore
+    @Lob
+    @Column(name = "price_sketch")
+    private byte[] priceSketch;
+
+    @Transient
+    private PriceSketch sketch;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public MarketPriceRollup() {}
+
+    public MarketPriceRollup(String productKey, String regionKey, RollupGranularity granularity, LocalDate bucketStart) {
+        this.productKey = productKey;
+        this.regionKey = regionKey;
+        this.granularity = granularity;
+        this.bucketStart = bucketStart;
+    }
+
+    /**
+     * Folds one price into the bucket. Ticks may arrive out of order: open
+     * and close follow the record date, not the arrival order.
+     */
+    public void apply(MarketPrice price) {
+        LocalDateTime time = price.getRecordDate();
+        BigDecimal average = price.getAveragePrice();
+
+        if (openTime == null || time.isBefore(openTime)) {
+            openTime = time;
+            openPrice = average;
+        }
+        if (closeTime == null || !time.isBefore(closeTime)) {
+            closeTime = time;
+            closePrice = average;
+        }
+        BigDecimal high = price.getMaxPrice() != null ? price.getMaxPrice() : average;
+        BigDecimal low = price.getMinPrice() != null ? price.getMinPrice() : average;
+        if (highPrice == null || high.compareTo(highPrice) > 0) {
+            highPrice = high;
+        }
+        if (lowPrice == null || low.compareTo(lowPrice) < 0) {
+            lowPrice = low;
+        }
+
+        long quantity = price.getTotalQuantityTraded() != null ? price.getTotalQuantityTraded() : 0;
+        tickCount++;
+        priceSum = priceSum.add(average);
+        weightedPriceSum = weightedPriceSum.add(average.multiply(BigDecimal.valueOf(quantity)));
+        totalQuantityTraded += quantity;
+        if (granularity == RollupGranularity.DAILY) {
+            getPriceSketch().add(average.doubleValue());
+        }
+
+        productName = price.getProductName();
+        if (!ALL_REGIONS.equals(regionKey)) {
+            region = price.getRegion();
+        }
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void storeSketch() {
+        if (sketch != null) {
+            priceSketch = sketch.toBytes();
+        }
+    }
+
+    // Decoded on first use; empty for buckets recorded before sketches were kept
+    @JsonIgnore
+    public PriceSketch getPriceSketch() {
+        if (sketch == null) {
+            sketch = PriceSketch.fromBytes(priceSketch);
+        }
+        return sketch;
+    }
+
+    public BigDecimal getAveragePrice() {
+        if (tickCount == 0) {
+            return null;
+        }
+        return priceSum.divide(BigDecimal.valueOf(tickCount), 2, RoundingMode.HALF_UP);
+    }
+
+    // Falls back to the plain average when no quantity was reported
+    public BigDecimal getVolumeWeightedAverage() {
+        if (totalQuantityTraded == 0) {
+            return getAveragePrice();
+        }
+        return weightedPriceSum.divide(BigDecimal.valueOf(totalQuantityTraded), 2, RoundingMode.HALF_UP);
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getProductKey() {
+        return productKey;
+    }
+
+    public String getRegionKey() {
+        return regionKey;
+    }
+
+    public RollupGranularity getGranularity() {
+        return granularity;
+    }
+
+    public LocalDate getBucketStart() {
+        return bucketStart;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public BigDecimal getOpenPrice() {
+        return openPrice;
+    }
+
+    public LocalDateTime getOpenTime() {
+        return openTime;
+    }
+
+    public BigDecimal getHighPrice() {
+        return highPrice;
+    }
+
+    public BigDecimal getLowPrice() {
+        return lowPrice;
+    }
+
+    public BigDecimal getClosePrice() {
+        return closePrice;
+    }
+
+    public LocalDateTime getCloseTime() {
+        return closeTime;
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    public BigDecimal getPriceSum() {
+        return priceSum;
+    }
+
+    public BigDecimal getWeightedPriceSum() {
+        return weightedPriceSum;
+    }
+
+    public long getTotalQuantityTraded() {
+        return totalQuantityTraded;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -12,7 +12,7 @@ import java.util.List;
 @Table(name = "orders")
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledId("orders")
     private Long id;
 
     // Reference to the buyer who placed this order
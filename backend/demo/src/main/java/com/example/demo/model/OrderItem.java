@@ -9,7 +9,7 @@ import java.math.BigDecimal;
 @Table(name = "order_items")
 public class OrderItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledId("order_items")
     private Long id;
 
     // Reference to the order this item belongs to
@@ -0,0 +1,21 @@
+package com.example.demo.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an id that is drawn from an in-memory block handed out by
+ * {@link com.example.demo.service.IdBlockAllocator}. Unlike IDENTITY, the id is
+ * known before the INSERT, so Hibernate can batch the inserts.
+ */
+@IdGeneratorType(PooledIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface PooledId {
+    // Sequence name, by convention the entity's table name
+    String value();
+}
@@ -0,0 +1,29 @@
+package com.example.demo.model;
+
+import com.example.demo.service.IdBlockAllocator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.AnnotationBasedGenerator;
+import org.hibernate.generator.GeneratorCreationContext;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.lang.reflect.Member;
+
+// Instantiated by Hibernate through Spring's bean container, hence the injected allocator
+public class PooledIdGenerator implements IdentifierGenerator, AnnotationBasedGenerator<PooledId> {
+
+    @Autowired
+    IdBlockAllocator idBlockAllocator;
+
+    private String sequence;
+
+    @Override
+    public void initialize(PooledId annotation, Member member, GeneratorCreationContext context) {
+        this.sequence = annotation.value();
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return idBlockAllocator.next(sequence);
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.demo.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+
+/**
+ * A user's standing request to be told when a product's price crosses a
+ * threshold. ABOVE and BELOW alerts fire when the condition becomes true
+ * and re-arm once a later price no longer satisfies it, so a price hovering
+ * past the threshold notifies once. PERCENT_MOVE alerts fire on a move of
+ * {@code threshold} percent from the reference price, which then moves to
+ * the price that fired.
+ */
+@Entity
+@Table(name = "price_alerts",
+       indexes = {
+           @Index(name = "idx_price_alerts_user", columnList = "user_id")
+       })
+public class PriceAlert {
+    @Id
+    @PooledId("price_alerts")
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @NotNull
+    private String productName;
+
+    @JsonIgnore
+    @Column(name = "product_key", nullable = false)
+    private String productKey;
+
+    // Null watches every region
+    private String region;
+
+    @JsonIgnore
+    @Column(name = "region_key", nullable = false)
+    private String regionKey;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "alert_condition", nullable = false, length = 20)
+    private AlertCondition condition;
+
+    // A price for ABOVE and BELOW, a percentage for PERCENT_MOVE
+    @NotNull
+    @Positive
+    private BigDecimal threshold;
+
+    private BigDecimal referencePrice;
+
+    private boolean armed = true;
+
+    private long triggerCount;
+
+    private LocalDateTime lastTriggeredAt;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    public PriceAlert() {}
+
+    public PriceAlert(User user, String productName, String region, AlertCondition condition, BigDecimal threshold) {
+        this.user = user;
+        this.productName = productName;
+        this.productKey = MarketPrice.keyOf(productName);
+        this.region = region;
+        this.regionKey = region == null ? MarketPriceRollup.ALL_REGIONS : MarketPrice.keyOf(region);
+        this.condition = condition;
+        this.threshold = threshold;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    // Prices at which a PERCENT_MOVE alert fires, given its reference price
+    public BigDecimal getUpperBound() {
+        return referencePrice == null ? null
+            : referencePrice.multiply(BigDecimal.valueOf(100).add(threshold)).divide(BigDecimal.valueOf(100), 4, RoundingMode.HALF_UP);
+    }
+
+    public BigDecimal getLowerBound() {
+        return referencePrice == null ? null
+            : referencePrice.multiply(BigDecimal.valueOf(100).subtract(threshold)).divide(BigDecimal.valueOf(100), 4, RoundingMode.HALF_UP);
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public String getProductKey() {
+        return productKey;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public String getRegionKey() {
+        return regionKey;
+    }
+
+    public AlertCondition getCondition() {
+        return condition;
+    }
+
+    public BigDecimal getThreshold() {
+        return threshold;
+    }
+
+    public BigDecimal getReferencePrice() {
+        return referencePrice;
+    }
+
+    public void setReferencePrice(BigDecimal referencePrice) {
+        this.referencePrice = referencePrice;
+    }
+
+    public boolean isArmed() {
+        return armed;
+    }
+
+    public void setArmed(boolean armed) {
+        this.armed = armed;
+    }
+
+    public long getTriggerCount() {
+        return triggerCount;
+    }
+
+    public void setTriggerCount(long triggerCount) {
+        this.triggerCount = triggerCount;
+    }
+
+    public LocalDateTime getLastTriggeredAt() {
+        return lastTriggeredAt;
+    }
+
+    public void setLastTriggeredAt(LocalDateTime lastTriggeredAt) {
+        this.lastTriggeredAt = lastTriggeredAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
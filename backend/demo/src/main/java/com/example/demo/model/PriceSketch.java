@@ -0,0 +1,140 @@
+package com.example.demo.model;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Mergeable quantile sketch of prices with a bounded relative error, in the
+ * style of DDSketch: prices are counted in logarithmic buckets, so any
+ * quantile is returned within {@link #RELATIVE_ACCURACY} of a price that is
+ * actually at that rank. Sketches of disjoint sets of prices merge exactly,
+ * which is what lets daily sketches be combined into any date range.
+ */
+public final class PriceSketch {
+
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final byte FORMAT_VERSION = 1;
+
+    // counts[i] is the number of prices in bucket minIndex + i
+    private int minIndex;
+    private long[] counts = new long[0];
+    private long count;
+
+    public void add(double price) {
+        if (!(price > 0)) {
+            return;
+        }
+        int index = (int) Math.ceil(Math.log(price) / LOG_GAMMA);
+        ensureRange(index, index);
+        counts[index - minIndex]++;
+        count++;
+    }
+
+    public void merge(PriceSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        ensureRange(other.minIndex, other.minIndex + other.counts.length - 1);
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[other.minIndex + i - minIndex] += other.counts[i];
+        }
+        count += other.count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    // The price at rank q (0..1), or NaN when the sketch is empty
+    public double quantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.floor(Math.min(Math.max(q, 0), 1) * (count - 1));
+        long seen = 0;
+        int i = 0;
+        while (true) {
+            seen += counts[i];
+            if (seen > rank) {
+                break;
+            }
+            i++;
+        }
+        // Midpoint of the bucket in relative terms, which bounds the error by RELATIVE_ACCURACY
+        return 2 * Math.pow(GAMMA, minIndex + i) / (GAMMA + 1);
+    }
+
+    private void ensureRange(int low, int high) {
+        if (counts.length == 0) {
+            minIndex = low;
+            counts = new long[high - low + 1];
+            return;
+        }
+        int newMin = Math.min(minIndex, low);
+        int newMax = Math.max(minIndex + counts.length - 1, high);
+        if (newMin == minIndex && newMax == minIndex + counts.length - 1) {
+            return;
+        }
+        long[] grown = new long[newMax - newMin + 1];
+        System.arraycopy(counts, 0, grown, minIndex - newMin, counts.length);
+        counts = grown;
+        minIndex = newMin;
+    }
+
+    /**
+     * Compact binary form: a version byte, the first bucket index and bucket
+     * count, then each bucket's count, all as variable-length integers. A
+     * day of one product's prices usually fits in a few hundred bytes.
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 + counts.length);
+        out.write(FORMAT_VERSION);
+        writeVarLong(out, ((minIndex << 1) ^ (minIndex >> 31)) & 0xFFFFFFFFL);
+        writeVarLong(out, counts.length);
+        for (long bucket : counts) {
+            writeVarLong(out, bucket);
+        }
+        return out.toByteArray();
+    }
+
+    public static PriceSketch fromBytes(byte[] bytes) {
+        PriceSketch sketch = new PriceSketch();
+        if (bytes == null || bytes.length == 0) {
+            return sketch;
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        if (in.get() != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unknown price sketch format");
+        }
+        int zigzag = (int) readVarLong(in);
+        sketch.minIndex = (zigzag >>> 1) ^ -(zigzag & 1);
+        sketch.counts = new long[(int) readVarLong(in)];
+        for (int i = 0; i < sketch.counts.length; i++) {
+            sketch.counts[i] = readVarLong(in);
+            sketch.count += sketch.counts[i];
+        }
+        return sketch;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
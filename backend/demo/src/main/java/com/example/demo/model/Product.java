@@ -1,5 +1,6 @@
 package com.example.demo.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
@@ -10,11 +11,15 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products",
+       indexes = {
+           @Index(name = "idx_products_market_key", columnList = "product_key, region_key"),
+           @Index(name = "idx_products_status_deviation", columnList = "status, market_deviation")
+       })
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Product {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledId("products")
     private Long id;
 
     @NotBlank
@@ -45,6 +50,20 @@ public class Product {
     @Size(max = 100)
     private String location; // Farm location or pickup location
 
+    // Normalized name and location, matched against market price product and region keys
+    @JsonIgnore
+    @Column(name = "product_key")
+    private String productKey;
+
+    @JsonIgnore
+    @Column(name = "region_key")
+    private String regionKey;
+
+    // Percent above (positive) or below the market price; see MarketReferencePrices
+    @JsonIgnore
+    @Column(name = "market_deviation")
+    private BigDecimal marketDeviation;
+
     private String imageUrl;
 
     @Enumerated(EnumType.STRING)
@@ -87,11 +106,18 @@ public class Product {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
+        updateMarketKeys();
     }
 
     @PreUpdate
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
+        updateMarketKeys();
+    }
+
+    private void updateMarketKeys() {
+        productKey = MarketPrice.keyOf(name);
+        regionKey = MarketPrice.keyOf(location);
     }
 
     // Getters and Setters
@@ -222,4 +248,20 @@ public class Product {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
-}
\ No newline at end of file
+
+    public String getProductKey() {
+        return productKey;
+    }
+
+    public String getRegionKey() {
+        return regionKey;
+    }
+
+    public BigDecimal getMarketDeviation() {
+        return marketDeviation;
+    }
+
+    public void setMarketDeviation(BigDecimal marketDeviation) {
+        this.marketDeviation = marketDeviation;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+
+public enum RollupGranularity {
+    DAILY,
+    WEEKLY,
+    MONTHLY;
+
+    // First day of the bucket holding the given time; weeks start on Monday
+    public LocalDate bucketStart(LocalDateTime time) {
+        LocalDate date = time.toLocalDate();
+        return switch (this) {
+            case DAILY -> date;
+            case WEEKLY -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTHLY -> date.withDayOfMonth(1);
+        };
+    }
+}
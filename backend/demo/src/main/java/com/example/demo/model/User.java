@@ -1,5 +1,6 @@
 package com.example.demo.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
@@ -15,7 +16,7 @@ import java.time.LocalDateTime;
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledId("users")
     private Long id;
 
     @NotBlank
@@ -57,6 +58,11 @@ public class User {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Set on sign-out everywhere; tokens issued up to then are rejected
+    @JsonIgnore
+    @Column(name = "tokens_valid_after")
+    private LocalDateTime tokensValidAfter;
+
     public User() {}
 
     public User(String name, String email, String password, String phone, String company, UserType userType) {
@@ -166,6 +172,14 @@ public class User {
         this.updatedAt = updatedAt;
     }
 
+    public LocalDateTime getTokensValidAfter() {
+        return tokensValidAfter;
+    }
+
+    public void setTokensValidAfter(LocalDateTime tokensValidAfter) {
+        this.tokensValidAfter = tokensValidAfter;
+    }
+
     public String getFarmLocation() {
         return farmLocation;
     }
@@ -0,0 +1,14 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.AlertNotification;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AlertNotificationRepository extends JpaRepository<AlertNotification, Long> {
+
+    List<AlertNotification> findByUserIdAndIdGreaterThanOrderById(Long userId, Long afterId, Limit limit);
+}
@@ -1,20 +1,33 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.PriceTotals;
 import com.example.demo.model.MarketPrice;
 import com.example.demo.model.ProductCategory;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface MarketPriceRepository extends JpaRepository<MarketPrice, Long> {
+
+    // Integer.MIN_VALUE: MySQL Connector/J then streams this one result set instead of buffering it whole.
+    // The connection can run nothing else until the stream is closed
+    String STREAM_ROWS = "-2147483648";
     
     List<MarketPrice> findByCategory(ProductCategory category);
     
@@ -24,6 +37,10 @@ public interface MarketPriceRepository extends JpaRepository<MarketPrice, Long>
     
     @Query("SELECT mp FROM MarketPrice mp WHERE mp.productName = :productName ORDER BY mp.recordDate DESC")
     List<MarketPrice> findLatestPricesByProductName(@Param("productName") String productName, Pageable pageable);
+
+    // Matched on the normalized name, like the series store
+    @Query("SELECT mp FROM MarketPrice mp WHERE mp.productKey = :productKey ORDER BY mp.recordDate DESC")
+    List<MarketPrice> findLatestPricesByProductKey(@Param("productKey") String productKey, Pageable pageable);
     
     @Query("SELECT mp FROM MarketPrice mp WHERE mp.category = :category ORDER BY mp.recordDate DESC")
     List<MarketPrice> findLatestPricesByCategory(@Param("category") ProductCategory category, Pageable pageable);
@@ -38,4 +55,66 @@ public interface MarketPriceRepository extends JpaRepository<MarketPrice, Long>
     List<MarketPrice> findLatestPricesByProductAndRegion(@Param("productName") String productName, 
                                                         @Param("region") String region, 
                                                         Pageable pageable);
-}
\ No newline at end of file
+    
+    // Newest perCategory prices of every category in one statement, newest first within a category
+    @Query("SELECT mp FROM MarketPrice mp WHERE mp.id IN (" +
+           "SELECT r.id FROM (SELECT m.id AS id, ROW_NUMBER() OVER " +
+           "(PARTITION BY m.category ORDER BY m.recordDate DESC, m.id DESC) AS rn FROM MarketPrice m) r " +
+           "WHERE r.rn <= :perCategory) " +
+           "ORDER BY mp.category, mp.recordDate DESC, mp.id DESC")
+    List<MarketPrice> findLatestPricesPerCategory(@Param("perCategory") int perCategory);
+    
+    // Newest price of every product in every region, in one statement
+    @Query("SELECT mp FROM MarketPrice mp WHERE mp.id IN (" +
+           "SELECT r.id FROM (SELECT m.id AS id, ROW_NUMBER() OVER " +
+           "(PARTITION BY m.productKey, m.regionKey ORDER BY m.recordDate DESC, m.id DESC) AS rn FROM MarketPrice m) r " +
+           "WHERE r.rn = 1)")
+    List<MarketPrice> findLatestPricePerProductAndRegion();
+    
+    long countByRecordDateBetween(LocalDateTime startDate, LocalDateTime endDate);
+    
+    // Chronological history of one product, streamed row by row
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_ROWS))
+    @Query("SELECT mp FROM MarketPrice mp WHERE mp.productKey = :productKey " +
+           "AND mp.recordDate BETWEEN :startDate AND :endDate " +
+           "AND (:regionKey IS NULL OR mp.regionKey = :regionKey) " +
+           "ORDER BY mp.recordDate, mp.id")
+    Stream<MarketPrice> streamHistory(@Param("productKey") String productKey,
+                                      @Param("regionKey") String regionKey,
+                                      @Param("startDate") LocalDateTime startDate,
+                                      @Param("endDate") LocalDateTime endDate);
+    
+    // Every product's prices in time order, streamed row by row
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_ROWS))
+    @Query("SELECT mp FROM MarketPrice mp WHERE mp.recordDate >= :since ORDER BY mp.recordDate, mp.id")
+    Stream<MarketPrice> streamRecordedSince(@Param("since") LocalDateTime since);
+    
+    // Sum and count of the average prices recorded from `since` on, so they can be combined with rollups
+    @Query("SELECT new com.example.demo.dto.PriceTotals(SUM(mp.averagePrice), COUNT(mp)) FROM MarketPrice mp " +
+           "WHERE mp.productKey = :productKey AND mp.recordDate >= :since")
+    PriceTotals getPriceTotalsForProduct(@Param("productKey") String productKey, @Param("since") LocalDateTime since);
+    
+    // Daily rollup totals over [from, to), for periods whose raw prices are past retention
+    @Query("SELECT new com.example.demo.dto.PriceTotals(SUM(r.priceSum), SUM(r.tickCount)) FROM MarketPriceRollup r " +
+           "WHERE r.productKey = :productKey AND r.regionKey = :regionKey " +
+           "AND r.granularity = com.example.demo.model.RollupGranularity.DAILY " +
+           "AND r.bucketStart >= :from AND r.bucketStart < :to")
+    PriceTotals getRollupTotalsForProduct(@Param("productKey") String productKey,
+                                          @Param("regionKey") String regionKey,
+                                          @Param("from") LocalDate from,
+                                          @Param("to") LocalDate to);
+    
+    // Oldest prices recorded before `before`, one retention chunk at a time
+    @Query("SELECT mp FROM MarketPrice mp WHERE mp.recordDate < :before ORDER BY mp.recordDate, mp.id")
+    List<MarketPrice> findRecordedBefore(@Param("before") LocalDateTime before, Limit limit);
+    
+    @Query("SELECT mp FROM MarketPrice mp WHERE mp.productKey = :productKey " +
+           "AND mp.recordDate >= :from AND mp.recordDate < :to ORDER BY mp.recordDate, mp.id")
+    List<MarketPrice> findRecordedBetween(@Param("productKey") String productKey,
+                                          @Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to);
+    
+    @Modifying
+    @Query("DELETE FROM MarketPrice mp WHERE mp.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,49 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.MarketPriceRollup;
+import com.example.demo.model.RollupGranularity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MarketPriceRollupRepository extends JpaRepository<MarketPriceRollup, Long> {
+
+    // Locks in ascending id order, so writers sharing buckets queue up instead of deadlocking
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM MarketPriceRollup r WHERE r.id IN :ids ORDER BY r.id")
+    List<MarketPriceRollup> lockByIds(@Param("ids") Collection<Long> ids);
+
+    // A superset of the buckets for these keys; callers match the exact keys in memory
+    @Query("SELECT r FROM MarketPriceRollup r WHERE r.productKey IN :productKeys AND r.bucketStart IN :bucketStarts")
+    List<MarketPriceRollup> findBuckets(@Param("productKeys") Collection<String> productKeys,
+                                        @Param("bucketStarts") Collection<LocalDate> bucketStarts);
+
+    // Buckets are created empty ahead of their first price, so those are skipped
+    @Query("SELECT r FROM MarketPriceRollup r WHERE r.productKey = :productKey AND r.regionKey = :regionKey " +
+           "AND r.granularity = :granularity AND r.bucketStart BETWEEN :from AND :to AND r.tickCount > 0 " +
+           "ORDER BY r.bucketStart")
+    List<MarketPriceRollup> findBuckets(@Param("productKey") String productKey,
+                                        @Param("regionKey") String regionKey,
+                                        @Param("granularity") RollupGranularity granularity,
+                                        @Param("from") LocalDate from,
+                                        @Param("to") LocalDate to);
+
+    @Query("SELECT r.id FROM MarketPriceRollup r WHERE r.granularity = :granularity AND r.bucketStart < :before ORDER BY r.id")
+    List<Long> findIdsBefore(@Param("granularity") RollupGranularity granularity,
+                             @Param("before") LocalDate before,
+                             Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM MarketPriceRollup r WHERE r.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+}
@@ -1,11 +1,13 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.OrderItemView;
 import com.example.demo.model.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -20,4 +22,12 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     
     @Query("SELECT SUM(oi.quantity) FROM OrderItem oi WHERE oi.product.id = :productId")
     Integer getTotalQuantityOrderedForProduct(@Param("productId") Long productId);
+    
+    // All lines for a page of orders in one statement
+    @Query("SELECT new com.example.demo.dto.OrderItemView(oi.id, o.id, p.id, p.name, p.unit, f.id, " +
+           "oi.quantity, oi.unitPrice, oi.totalPrice) FROM OrderItem oi JOIN oi.order o " +
+           "LEFT JOIN oi.product p LEFT JOIN p.farmer f WHERE o.id IN :orderIds ORDER BY oi.id")
+    List<OrderItemView> findViewsByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+    
+    boolean existsByOrderIdAndProductFarmerId(Long orderId, Long farmerId);
 }
\ No newline at end of file
@@ -1,10 +1,16 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.OrderView;
 import com.example.demo.model.Order;
 import com.example.demo.model.OrderStatus;
 import com.example.demo.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -13,16 +19,40 @@ import org.springframework.stereotype.Repository;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     
+    String ORDER_VIEW_FIELDS = "new com.example.demo.dto.OrderView(o.id, o.status, o.totalAmount, " +
+           "o.deliveryAddress, o.orderDate, o.deliveryDate, o.notes, b.id, b.name, o.createdAt, o.updatedAt) ";
+    
     List<Order> findByBuyer(User buyer);
     
     List<Order> findByStatus(OrderStatus status);
     
     Page<Order> findByBuyer(User buyer, Pageable pageable);
     
+    // Keyset scrolling: no OFFSET and no COUNT query
+    @EntityGraph(attributePaths = "buyer")
+    Window<Order> findByBuyer(User buyer, ScrollPosition position, Sort sort, Limit limit);
+    
+    @EntityGraph(attributePaths = "buyer")
+    Window<Order> findDistinctByOrderItemsProductFarmerId(Long farmerId, ScrollPosition position, Sort sort, Limit limit);
+    
+    // Read projections: order row and buyer in one statement; lines come from OrderItemRepository
+    @Query(value = "SELECT " + ORDER_VIEW_FIELDS + "FROM Order o LEFT JOIN o.buyer b WHERE b.id = :buyerId",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.buyer.id = :buyerId")
+    Page<OrderView> findViewsByBuyerId(@Param("buyerId") Long buyerId, Pageable pageable);
+    
+    @Query(value = "SELECT DISTINCT " + ORDER_VIEW_FIELDS + "FROM Order o LEFT JOIN o.buyer b " +
+                   "JOIN o.orderItems oi WHERE oi.product.farmer.id = :farmerId",
+           countQuery = "SELECT COUNT(DISTINCT o) FROM Order o JOIN o.orderItems oi WHERE oi.product.farmer.id = :farmerId")
+    Page<OrderView> findViewsByFarmerId(@Param("farmerId") Long farmerId, Pageable pageable);
+    
+    @Query("SELECT " + ORDER_VIEW_FIELDS + "FROM Order o LEFT JOIN o.buyer b WHERE o.id = :id")
+    Optional<OrderView> findViewById(@Param("id") Long id);
+    
     @Query("SELECT o FROM Order o JOIN o.orderItems oi WHERE oi.product.farmer.id = :farmerId")
     List<Order> findOrdersByFarmerId(@Param("farmerId") Long farmerId);
     
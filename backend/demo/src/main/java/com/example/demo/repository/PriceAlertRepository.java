@@ -0,0 +1,33 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.PriceAlert;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PriceAlertRepository extends JpaRepository<PriceAlert, Long> {
+
+    List<PriceAlert> findByUserIdOrderById(Long userId);
+
+    Optional<PriceAlert> findByIdAndUserId(Long id, Long userId);
+
+    long countByUserId(Long userId);
+
+    // Writes the evaluation state only, so an alert deleted meanwhile stays deleted
+    @Modifying
+    @Query("UPDATE PriceAlert a SET a.armed = :armed, a.referencePrice = :referencePrice, " +
+           "a.triggerCount = :triggerCount, a.lastTriggeredAt = :lastTriggeredAt WHERE a.id = :id")
+    int updateState(@Param("id") Long id,
+                    @Param("armed") boolean armed,
+                    @Param("referencePrice") BigDecimal referencePrice,
+                    @Param("triggerCount") long triggerCount,
+                    @Param("lastTriggeredAt") LocalDateTime lastTriggeredAt);
+}
@@ -1,21 +1,36 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.CategoryCount;
+import com.example.demo.dto.ProductView;
 import com.example.demo.model.Product;
 import com.example.demo.model.ProductCategory;
 import com.example.demo.model.ProductStatus;
 import com.example.demo.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     
+    String PRODUCT_VIEW = "SELECT new com.example.demo.dto.ProductView(p.id, p.name, p.description, p.category, " +
+           "p.pricePerUnit, p.unit, p.quantityAvailable, p.location, p.imageUrl, p.status, p.harvestDate, " +
+           "p.expiryDate, p.quality, f.id, f.name, p.createdAt, p.updatedAt) FROM Product p LEFT JOIN p.farmer f ";
+    
     List<Product> findByFarmer(User farmer);
     
     List<Product> findByCategory(ProductCategory category);
@@ -26,13 +41,37 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     
     Page<Product> findByStatusAndCategory(ProductStatus status, ProductCategory category, Pageable pageable);
     
-    @Query("SELECT p FROM Product p WHERE p.status = :status AND " +
-           "(LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
-    Page<Product> findAvailableProductsBySearchTerm(@Param("status") ProductStatus status, 
-                                                   @Param("searchTerm") String searchTerm, 
+    // Keyset scrolling: no OFFSET and no COUNT query
+    @EntityGraph(attributePaths = "farmer")
+    Window<Product> findByStatus(ProductStatus status, ScrollPosition position, Sort sort, Limit limit);
+    
+    @EntityGraph(attributePaths = "farmer")
+    Window<Product> findByStatusAndCategory(ProductStatus status, ProductCategory category,
+                                            ScrollPosition position, Sort sort, Limit limit);
+    
+    // Read projections: one statement each, farmer joined in
+    @Query(value = PRODUCT_VIEW + "WHERE p.status = :status",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.status = :status")
+    Page<ProductView> findViewsByStatus(@Param("status") ProductStatus status, Pageable pageable);
+    
+    @Query(value = PRODUCT_VIEW + "WHERE p.status = :status AND p.category = :category",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.status = :status AND p.category = :category")
+    Page<ProductView> findViewsByStatusAndCategory(@Param("status") ProductStatus status,
+                                                   @Param("category") ProductCategory category,
                                                    Pageable pageable);
     
+    @Query(PRODUCT_VIEW + "WHERE p.status = :status")
+    List<ProductView> findViewsByStatus(@Param("status") ProductStatus status);
+    
+    @Query(PRODUCT_VIEW + "WHERE p.id IN :ids")
+    List<ProductView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query(PRODUCT_VIEW + "WHERE p.id = :id")
+    Optional<ProductView> findViewById(@Param("id") Long id);
+    
+    @Query(PRODUCT_VIEW + "WHERE f.id = :farmerId")
+    List<ProductView> findViewsByFarmerId(@Param("farmerId") Long farmerId);
+    
     @Query("SELECT p FROM Product p WHERE p.farmer.id = :farmerId")
     List<Product> findByFarmerId(@Param("farmerId") Long farmerId);
     
@@ -44,4 +83,26 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     
     @Query("SELECT SUM(p.quantityAvailable) FROM Product p WHERE p.farmer.id = :farmerId AND p.status = 'AVAILABLE'")
     Integer getTotalAvailableQuantityByFarmerId(@Param("farmerId") Long farmerId);
-}
\ No newline at end of file
+    
+    @Query("SELECT new com.example.demo.dto.CategoryCount(p.category, COUNT(p)) FROM Product p GROUP BY p.category")
+    List<CategoryCount> countByCategory();
+    
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids AND p.status = :status")
+    List<Long> findIdsByIdInAndStatus(@Param("ids") Collection<Long> ids, @Param("status") ProductStatus status);
+    
+    // Percent above or below the market price, for every listing of the product in one location
+    @Modifying
+    @Query("UPDATE Product p SET p.marketDeviation = (p.pricePerUnit - :marketPrice) * 100 / :marketPrice " +
+           "WHERE p.productKey = :productKey AND p.regionKey = :regionKey")
+    int updateMarketDeviation(@Param("productKey") String productKey,
+                              @Param("regionKey") String regionKey,
+                              @Param("marketPrice") BigDecimal marketPrice);
+    
+    // The same for listings in locations without a market price of their own; pricedRegions must not be empty
+    @Modifying
+    @Query("UPDATE Product p SET p.marketDeviation = (p.pricePerUnit - :marketPrice) * 100 / :marketPrice " +
+           "WHERE p.productKey = :productKey AND (p.regionKey IS NULL OR p.regionKey NOT IN :pricedRegions)")
+    int updateMarketDeviationElsewhere(@Param("productKey") String productKey,
+                                       @Param("pricedRegions") Collection<String> pricedRegions,
+                                       @Param("marketPrice") BigDecimal marketPrice);
+}
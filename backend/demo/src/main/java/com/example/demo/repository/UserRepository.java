@@ -1,12 +1,24 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.AccountStatus;
 import com.example.demo.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     Boolean existsByEmail(String email);
-}
\ No newline at end of file
+
+    @Query("SELECT new com.example.demo.dto.AccountStatus(u.id, u.userType, u.tokensValidAfter) FROM User u WHERE u.id = :id")
+    Optional<AccountStatus> findAccountStatusById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE User u SET u.tokensValidAfter = :at WHERE u.id = :id")
+    int updateTokensValidAfter(@Param("id") Long id, @Param("at") LocalDateTime at);
+}
@@ -0,0 +1,261 @@
+package com.example.demo.search;
+
+import com.example.demo.model.Product;
+import com.example.demo.model.ProductStatus;
+import com.example.demo.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over the searchable text of AVAILABLE products.
+ * Results are ranked with BM25; name and quality terms are weighted above
+ * description and location terms. Controllers call {@link #index(Product)} and
+ * {@link #remove(Long)} after every product write so the index tracks the table.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int QUALITY_WEIGHT = 2;
+    private static final int LOCATION_WEIGHT = 1;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    // Shorter query terms are matched exactly; longer ones also match as prefixes
+    private static final int MIN_PREFIX_LENGTH = 3;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (product id -> weighted term frequency)
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+
+    // product id -> indexed document, kept so a product can be removed or re-indexed
+    private final Map<Long, IndexedDocument> documents = new HashMap<>();
+
+    private long totalLength;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Product> products = productRepository.findByStatus(ProductStatus.AVAILABLE);
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            totalLength = 0;
+            for (Product product : products) {
+                add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or replaces the product in the index. Products that are no longer
+     * AVAILABLE are dropped, since only available listings are searchable.
+     */
+    public void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            delete(product.getId());
+            if (product.getStatus() == ProductStatus.AVAILABLE) {
+                add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Same as index() for each product, under a single lock acquisition
+    public void indexAll(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            for (Product product : products) {
+                delete(product.getId());
+                if (product.getStatus() == ProductStatus.AVAILABLE) {
+                    add(product);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            delete(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of matching products, best match first. With AND every
+     * query term must match; with OR any term may match.
+     */
+    public List<Long> search(String query, SearchOperator operator) {
+        List<String> queryTerms = Tokenizer.tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (documents.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            double averageLength = (double) totalLength / documents.size();
+            Map<Long, Double> scores = null;
+
+            for (String queryTerm : queryTerms) {
+                Map<Long, Double> termScores = scoreTerm(queryTerm, averageLength);
+
+                if (scores == null) {
+                    scores = termScores;
+                } else if (operator == SearchOperator.OR) {
+                    for (Map.Entry<Long, Double> entry : termScores.entrySet()) {
+                        scores.merge(entry.getKey(), entry.getValue(), Double::sum);
+                    }
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                        entry.setValue(entry.getValue() + termScores.get(entry.getKey()));
+                    }
+                }
+
+                if (scores.isEmpty() && operator != SearchOperator.OR) {
+                    return Collections.emptyList();
+                }
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort((a, b) -> {
+                int byScore = Double.compare(b.getValue(), a.getValue());
+                return byScore != 0 ? byScore : Long.compare(b.getKey(), a.getKey());
+            });
+
+            List<Long> ids = new ArrayList<>(ranked.size());
+            for (Map.Entry<Long, Double> entry : ranked) {
+                ids.add(entry.getKey());
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Scores every document containing the query term, or an indexed term it prefixes
+    private Map<Long, Double> scoreTerm(String queryTerm, double averageLength) {
+        Map<String, Map<Long, Integer>> matches;
+        if (queryTerm.length() >= MIN_PREFIX_LENGTH) {
+            matches = postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false);
+        } else {
+            Map<Long, Integer> exact = postings.get(queryTerm);
+            matches = exact == null ? Collections.emptyMap() : Map.of(queryTerm, exact);
+        }
+
+        Map<Long, Double> scores = new HashMap<>();
+        int documentCount = documents.size();
+
+        for (Map<Long, Integer> posting : matches.values()) {
+            int documentFrequency = posting.size();
+            double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+
+            for (Map.Entry<Long, Integer> entry : posting.entrySet()) {
+                int frequency = entry.getValue();
+                int length = documents.get(entry.getKey()).length;
+                double norm = K1 * (1 - B + B * length / averageLength);
+                double score = idf * (frequency * (K1 + 1)) / (frequency + norm);
+                // A document matching several expansions of one prefix keeps its best score
+                scores.merge(entry.getKey(), score, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private void add(Product product) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        addField(frequencies, product.getName(), NAME_WEIGHT);
+        addField(frequencies, product.getQuality(), QUALITY_WEIGHT);
+        addField(frequencies, product.getLocation(), LOCATION_WEIGHT);
+        addField(frequencies, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        int length = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>())
+                .put(product.getId(), entry.getValue());
+            length += entry.getValue();
+        }
+
+        documents.put(product.getId(), new IndexedDocument(frequencies, length));
+        totalLength += length;
+    }
+
+    private void delete(Long productId) {
+        IndexedDocument document = documents.remove(productId);
+        if (document == null) {
+            return;
+        }
+
+        for (String term : document.frequencies.keySet()) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= document.length;
+    }
+
+    private static void addField(Map<String, Integer> frequencies, String text, int weight) {
+        for (String term : Tokenizer.tokenize(text)) {
+            frequencies.merge(term, weight, Integer::sum);
+        }
+    }
+
+    private static class IndexedDocument {
+        private final Map<String, Integer> frequencies;
+        private final int length;
+
+        IndexedDocument(Map<String, Integer> frequencies, int length) {
+            this.frequencies = frequencies;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.demo.search;
+
+public enum SearchOperator {
+    AND,
+    OR
+}
@@ -0,0 +1,62 @@
+package com.example.demo.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits free text into normalized index terms. The same rules are applied to
+ * product text at index time and to search input at query time, so the two
+ * always agree on what a term looks like.
+ */
+public final class Tokenizer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "a", "an", "and", "the", "of", "for", "with", "in", "on", "to", "from", "by", "or"
+    );
+
+    private Tokenizer() {}
+
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String term = normalize(lower.substring(start, i));
+                if (term != null) {
+                    terms.add(term);
+                }
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    // Light plural folding so "tomatoes" finds "tomato" and "berries" finds "berry"
+    private static String normalize(String token) {
+        if (STOP_WORDS.contains(token)) {
+            return null;
+        }
+        if (token.length() > 4) {
+            if (token.endsWith("ies")) {
+                return token.substring(0, token.length() - 3) + "y";
+            }
+            if (token.endsWith("oes")) {
+                return token.substring(0, token.length() - 2);
+            }
+        }
+        if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+}
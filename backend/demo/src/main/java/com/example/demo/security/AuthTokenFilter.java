@@ -1,5 +1,6 @@
 package com.example.demo.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,7 +8,6 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -20,7 +20,10 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     private JwtUtils jwtUtils;
 
     @Autowired
-    private CustomUserDetailsService userDetailsService;
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private TokenRevocations tokenRevocations;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -36,10 +39,17 @@ public class AuthTokenFilter extends OncePerRequestFilter {
                 logger.debug("AuthTokenFilter - JWT extracted (len=" + jwt.length() + ")");
             }
 
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String email = jwtUtils.getEmailFromJwtToken(jwt);
+            // One verification, skipped entirely for a token verified before
+            Claims claims = jwt == null ? null : jwtUtils.getVerifiedClaims(jwt);
+            // Refresh tokens are only good for /api/auth/refresh; revoked ids are an in-memory lookup
+            if (claims != null && (jwtUtils.isRefreshToken(claims) || tokenRevocations.isRevoked(claims))) {
+                claims = null;
+            }
+            // Built from the token's claims; null when the user signed out everywhere since
+            UserPrincipal userDetails = claims == null ? null : principalCache.resolve(claims);
+            if (userDetails != null) {
+                String email = userDetails.getEmail();
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(email);
                 UsernamePasswordAuthenticationToken authentication = 
                         new UsernamePasswordAuthenticationToken(userDetails,
                                                                 null,
@@ -1,14 +1,36 @@
 package com.example.demo.security;
 
+import com.example.demo.model.UserType;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SecurityException;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Issues and verifies JWTs with one signing key and one parser, both built at
+ * startup. Verified tokens are remembered by their SHA-256 digest until they
+ * expire, so a bearer token seen before is accepted with a map lookup instead
+ * of another signature check. At most {@code app.jwtCacheMaxEntries} tokens
+ * are remembered; a full cache drops expired tokens first, then arbitrary
+ * ones. Tokens that fail verification are never cached.
+ */
 @Component
 public class JwtUtils {
     
@@ -18,52 +40,218 @@ public class JwtUtils {
     @Value("${app.jwtExpirationMs}")
     private int jwtExpirationMs;
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    @Value("${app.jwtRefreshExpirationMs:604800000}")
+    private long jwtRefreshExpirationMs;
+
+    @Value("${app.jwtCacheMaxEntries:10000}")
+    private int cacheMaxEntries;
+
+    private Key signingKey;
+    private JwtParser parser;
+
+    // SHA-256 of the token -> its verified claims
+    private final ConcurrentMap<String, VerifiedToken> verified = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
     }
 
+    // Claims that let a request be authenticated without loading the user
+    static final String CLAIM_USER_ID = "uid";
+    static final String CLAIM_NAME = "name";
+    static final String CLAIM_USER_TYPE = "type";
+    // Set on refresh tokens, which are only accepted by /api/auth/refresh
+    static final String CLAIM_TOKEN_USE = "use";
+    static final String REFRESH_USE = "refresh";
+    // iat has whole seconds; this tells tokens issued just before a sign-out everywhere from those just after
+    static final String CLAIM_ISSUED_AT_MS = "iat_ms";
+
     public String generateJwtToken(Authentication authentication) {
-        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        return generateAccessToken((UserPrincipal) authentication.getPrincipal());
+    }
+
+    public String generateAccessToken(UserPrincipal userPrincipal) {
+        return principalToken(userPrincipal, jwtExpirationMs).compact();
+    }
+
+    public String generateRefreshToken(UserPrincipal userPrincipal) {
+        return principalToken(userPrincipal, jwtRefreshExpirationMs)
+                .claim(CLAIM_TOKEN_USE, REFRESH_USE)
+                .compact();
+    }
 
+    private JwtBuilder principalToken(UserPrincipal userPrincipal, long expirationMs) {
+        Date issuedAt = new Date();
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject((userPrincipal.getEmail()))
-                .setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
-                .compact();
+                .claim(CLAIM_USER_ID, userPrincipal.getId())
+                .claim(CLAIM_NAME, userPrincipal.getName())
+                .claim(CLAIM_USER_TYPE, userPrincipal.getUserType() == null ? null : userPrincipal.getUserType().name())
+                .setIssuedAt(issuedAt)
+                .claim(CLAIM_ISSUED_AT_MS, issuedAt.getTime())
+                .setExpiration(new Date(issuedAt.getTime() + expirationMs))
+                .signWith(signingKey, SignatureAlgorithm.HS512);
     }
 
     public String generateTokenFromEmail(String email) {
+        Date issuedAt = new Date();
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(email)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .setIssuedAt(issuedAt)
+                .claim(CLAIM_ISSUED_AT_MS, issuedAt.getTime())
+                .setExpiration(new Date(issuedAt.getTime() + jwtExpirationMs))
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
+    // The user id claim, or null for a token without one
+    public Long getUserIdFromClaims(Claims claims) {
+        Object id = claims.get(CLAIM_USER_ID);
+        return id instanceof Number ? ((Number) id).longValue() : null;
+    }
+
+    /**
+     * When the token was issued, in epoch milliseconds, or null for a token
+     * without an issue time. Tokens from before the millisecond claim only
+     * have whole seconds and count as issued at the end of their second.
+     */
+    public Long getIssuedAtMillisFromClaims(Claims claims) {
+        Object issuedAtMs = claims.get(CLAIM_ISSUED_AT_MS);
+        if (issuedAtMs instanceof Number) {
+            return ((Number) issuedAtMs).longValue();
+        }
+        Date issuedAt = claims.getIssuedAt();
+        return issuedAt == null ? null : issuedAt.getTime() + 999;
+    }
+
+    public boolean isRefreshToken(Claims claims) {
+        return REFRESH_USE.equals(claims.get(CLAIM_TOKEN_USE));
+    }
+
     public String getEmailFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parser.parseClaimsJws(token).getBody().getSubject();
     }
 
     public boolean validateJwtToken(String authToken) {
+        return getVerifiedClaims(authToken) != null;
+    }
+
+    /**
+     * The claims of a token with a valid signature that has not expired, or
+     * null. The claims may be shared with other callers and must not be
+     * modified.
+     */
+    public Claims getVerifiedClaims(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String digest = digest(token);
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verified.get(digest);
+        if (cached != null) {
+            if (cached.expiresAt() > now) {
+                hits.increment();
+                return cached.claims();
+            }
+            expired.increment();
+            verified.remove(digest, cached);
+        }
+        misses.increment();
+
+        Claims claims = verify(token);
+        if (claims == null) {
+            failures.increment();
+            return null;
+        }
+        // A token without an expiry is not remembered, so it is checked every time
+        if (claims.getExpiration() != null) {
+            remember(digest, new VerifiedToken(claims, claims.getExpiration().getTime()), now);
+        }
+        return claims;
+    }
+
+    /**
+     * The principal described by a token's claims, or null for a token
+     * without them, such as one from {@link #generateTokenFromEmail}.
+     */
+    public UserPrincipal getPrincipalFromClaims(Claims claims) {
+        Object id = claims.get(CLAIM_USER_ID);
+        Object userType = claims.get(CLAIM_USER_TYPE);
+        if (!(id instanceof Number) || !(userType instanceof String) || claims.getSubject() == null) {
+            return null;
+        }
+        try {
+            return new UserPrincipal(((Number) id).longValue(), claims.get(CLAIM_NAME, String.class),
+                    claims.getSubject(), null, UserType.valueOf((String) userType));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private Claims verify(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(authToken);
-            return true;
+            return parser.parseClaimsJws(token).getBody();
         } catch (MalformedJwtException e) {
             System.err.println("Invalid JWT token: " + e.getMessage());
         } catch (ExpiredJwtException e) {
             System.err.println("JWT token is expired: " + e.getMessage());
         } catch (UnsupportedJwtException e) {
             System.err.println("JWT token is unsupported: " + e.getMessage());
+        } catch (SecurityException e) {
+            System.err.println("Invalid JWT signature: " + e.getMessage());
         } catch (IllegalArgumentException e) {
             System.err.println("JWT claims string is empty: " + e.getMessage());
         }
-        return false;
+        return null;
     }
-}
\ No newline at end of file
+
+    private void remember(String digest, VerifiedToken token, long now) {
+        if (verified.size() >= cacheMaxEntries) {
+            verified.values().removeIf(entry -> entry.expiresAt() <= now);
+            Iterator<VerifiedToken> entries = verified.values().iterator();
+            while (verified.size() >= cacheMaxEntries && entries.hasNext()) {
+                entries.next();
+                entries.remove();
+                evicted.increment();
+            }
+        }
+        verified.put(digest, token);
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", verified.size());
+        stats.put("maxEntries", cacheMaxEntries);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.sum());
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("verificationFailures", failures.sum());
+        stats.put("expired", expired.sum());
+        stats.put("evicted", evicted.sum());
+        return stats;
+    }
+
+    private record VerifiedToken(Claims claims, long expiresAt) {}
+}
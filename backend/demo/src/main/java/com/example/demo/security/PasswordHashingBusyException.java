@@ -0,0 +1,18 @@
+package com.example.demo.security;
+
+/**
+ * Thrown when the password hashing threads and their queue are full. The
+ * request should be answered with 503 and the suggested Retry-After.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public PasswordHashingBusyException(long retryAfterSeconds) {
+        super("Password hashing is at capacity");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.demo.security;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The application's password encoder. BCrypt hashing and verification run on
+ * {@code app.passwordHashingThreads} dedicated threads (one per core by
+ * default) behind a queue of {@code app.passwordHashingQueueSize}, so a burst
+ * of sign-ins can use no more CPU than that and cannot tie up more request
+ * threads than the pool and queue hold. When both are full the call fails at
+ * once with {@link PasswordHashingBusyException}.
+ *
+ * The BCrypt cost is {@code app.passwordHashingCost}, or when that is 0 the
+ * highest cost from {@code app.passwordHashingMinCost} whose hash takes no
+ * longer than {@code app.passwordHashingTargetMs} on this machine, measured
+ * at startup. Stored hashes carry their own cost and verify either way.
+ */
+@Service
+public class PasswordHashingService implements PasswordEncoder {
+
+    @Value("${app.passwordHashingThreads:0}")
+    private int threads;
+
+    @Value("${app.passwordHashingQueueSize:64}")
+    private int queueSize;
+
+    @Value("${app.passwordHashingCost:0}")
+    private int configuredCost;
+
+    @Value("${app.passwordHashingMinCost:10}")
+    private int minCost;
+
+    @Value("${app.passwordHashingMaxCost:14}")
+    private int maxCost;
+
+    @Value("${app.passwordHashingTargetMs:250}")
+    private long targetMs;
+
+    private BCryptPasswordEncoder encoder;
+    private int cost;
+    private ThreadPoolExecutor executor;
+
+    private final LongAdder hashes = new LongAdder();
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAccumulator maxHashNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAccumulator maxQueueWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Math::max, 0);
+
+    @PostConstruct
+    void start() {
+        cost = configuredCost > 0 ? configuredCost : calibrate();
+        encoder = new BCryptPasswordEncoder(cost);
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), daemonThreads("password-hashing-"));
+        executor.prestartAllCoreThreads();
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger created = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + created.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Each step doubles the work, so this stops at the first cost over the target
+    private int calibrate() {
+        new BCryptPasswordEncoder(4).encode("warm-up");
+        int chosen = minCost;
+        for (int candidate = minCost; candidate <= maxCost; candidate++) {
+            long started = System.nanoTime();
+            new BCryptPasswordEncoder(candidate).encode("calibration");
+            long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+            if (elapsedMs > targetMs) {
+                break;
+            }
+            chosen = candidate;
+        }
+        System.err.println("Password hashing calibrated to BCrypt cost " + chosen + " for a target of " + targetMs + "ms");
+        return chosen;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        hashes.increment();
+        return run(() -> encoder.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        verifications.increment();
+        return run(() -> encoder.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return encoder.upgradeEncoding(encodedPassword);
+    }
+
+    // Seconds a client turned away should wait: roughly the time to work off a full queue
+    public long getRetryAfterSeconds() {
+        long averageMs = averageHashMs();
+        long drainMs = (averageMs > 0 ? averageMs : targetMs) * queueSize / executor.getMaximumPoolSize();
+        return Math.max(1, (drainMs + 999) / 1000);
+    }
+
+    private <T> T run(Supplier<T> task) {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long started = System.nanoTime();
+                record(queueWaitNanos, maxQueueWaitNanos, started - submitted);
+                try {
+                    return task.get();
+                } finally {
+                    record(hashNanos, maxHashNanos, System.nanoTime() - started);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException(getRetryAfterSeconds());
+        }
+        maxQueueDepth.accumulate(executor.getQueue().size());
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void record(LongAdder total, LongAccumulator max, long nanos) {
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    private long averageHashMs() {
+        long count = executor.getCompletedTaskCount();
+        return count == 0 ? 0 : hashNanos.sum() / count / 1_000_000;
+    }
+
+    public Map<String, Object> getStats() {
+        long completed = executor.getCompletedTaskCount();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cost", cost);
+        stats.put("calibrated", configuredCost <= 0);
+        stats.put("targetMs", targetMs);
+        stats.put("threads", executor.getMaximumPoolSize());
+        stats.put("active", executor.getActiveCount());
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("maxQueueDepth", maxQueueDepth.get());
+        stats.put("queueCapacity", queueSize);
+        stats.put("hashes", hashes.sum());
+        stats.put("verifications", verifications.sum());
+        stats.put("completed", completed);
+        stats.put("rejected", rejected.sum());
+        stats.put("averageHashMs", completed == 0 ? 0.0 : hashNanos.sum() / 1e6 / completed);
+        stats.put("maxHashMs", maxHashNanos.get() / 1e6);
+        stats.put("averageQueueWaitMs", completed == 0 ? 0.0 : queueWaitNanos.sum() / 1e6 / completed);
+        stats.put("maxQueueWaitMs", maxQueueWaitNanos.get() / 1e6);
+        stats.put("retryAfterSeconds", getRetryAfterSeconds());
+        return stats;
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.demo.security;
+
+import com.example.demo.dto.AccountStatus;
+import com.example.demo.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turns verified token claims into the request's principal. Tokens from
+ * {@link JwtUtils#generateJwtToken} carry the user's id, name and type, so
+ * the principal is built without loading the user; older tokens without
+ * those claims fall back to {@link CustomUserDetailsService}.
+ *
+ * Whether the user still exists, their current type and when they last
+ * signed out everywhere are cached per user for {@code app.principalCacheTtlMs},
+ * so that check costs one query per user per TTL rather than one per request.
+ * A sign-out on this instance takes effect immediately; on other instances
+ * within the TTL.
+ */
+@Service
+public class PrincipalCache {
+
+    @Value("${app.principalCacheTtlMs:30000}")
+    private long ttlMs;
+
+    @Value("${app.principalCacheMaxEntries:10000}")
+    private int maxEntries;
+
+    @Autowired
+    JwtUtils jwtUtils;
+
+    @Autowired
+    CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private final ConcurrentMap<Long, CachedStatus> statuses = new ConcurrentHashMap<>();
+
+    private final LongAdder fromClaims = new LongAdder();
+    private final LongAdder databaseFallbacks = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revokedRejected = new LongAdder();
+    private final LongAdder unknownRejected = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    /**
+     * The principal for a verified token, or null when its user no longer
+     * exists or signed out everywhere after the token was issued.
+     */
+    public UserPrincipal resolve(Claims claims) {
+        UserPrincipal principal = jwtUtils.getPrincipalFromClaims(claims);
+        if (principal != null) {
+            fromClaims.increment();
+        } else {
+            databaseFallbacks.increment();
+            principal = (UserPrincipal) userDetailsService.loadUserByUsername(claims.getSubject());
+        }
+
+        AccountStatus status = statusOf(principal.getId());
+        if (status == null) {
+            unknownRejected.increment();
+            return null;
+        }
+        if (isRevoked(jwtUtils.getIssuedAtMillisFromClaims(claims), status.getTokensValidAfter())) {
+            revokedRejected.increment();
+            return null;
+        }
+        if (status.getUserType() != null && status.getUserType() != principal.getUserType()) {
+            // The user's type changed after the token was issued; authorize by the current one
+            principal = new UserPrincipal(principal.getId(), principal.getName(), principal.getEmail(),
+                    principal.getPassword(), status.getUserType());
+        }
+        return principal;
+    }
+
+    // Rejects every token of the user issued up to now, on this instance at once
+    public void revokeTokens(Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> userRepository.updateTokensValidAfter(userId, now));
+        statuses.remove(userId);
+        statusOf(userId);
+    }
+
+    // Compared to the millisecond, so signing in again right after a sign-out everywhere gives a usable token
+    private static boolean isRevoked(Long issuedAtMillis, LocalDateTime tokensValidAfter) {
+        if (tokensValidAfter == null) {
+            return false;
+        }
+        long validAfter = tokensValidAfter.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return issuedAtMillis == null || issuedAtMillis <= validAfter;
+    }
+
+    private AccountStatus statusOf(Long userId) {
+        long now = System.currentTimeMillis();
+        CachedStatus cached = statuses.get(userId);
+        if (cached != null && cached.expiresAt() > now) {
+            hits.increment();
+            return cached.status();
+        }
+        misses.increment();
+
+        // Unknown users are not cached, so a user created later is found at once
+        Optional<AccountStatus> loaded = userRepository.findAccountStatusById(userId);
+        if (loaded.isEmpty()) {
+            statuses.remove(userId);
+            return null;
+        }
+        if (statuses.size() >= maxEntries) {
+            evict(now);
+        }
+        // Sign-outs only move forward, so a load that raced with one never undoes it
+        CachedStatus merged = statuses.merge(userId, new CachedStatus(loaded.get(), now + ttlMs), PrincipalCache::later);
+        return merged.status();
+    }
+
+    private static CachedStatus later(CachedStatus current, CachedStatus loaded) {
+        LocalDateTime currentAfter = current.status().getTokensValidAfter();
+        LocalDateTime loadedAfter = loaded.status().getTokensValidAfter();
+        if (currentAfter != null && (loadedAfter == null || currentAfter.isAfter(loadedAfter))) {
+            return current;
+        }
+        return loaded;
+    }
+
+    private void evict(long now) {
+        statuses.values().removeIf(entry -> entry.expiresAt() <= now);
+        Iterator<CachedStatus> entries = statuses.values().iterator();
+        while (statuses.size() >= maxEntries && entries.hasNext()) {
+            entries.next();
+            entries.remove();
+            evicted.increment();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", statuses.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlMs", ttlMs);
+        stats.put("principalsFromClaims", fromClaims.sum());
+        stats.put("databaseFallbacks", databaseFallbacks.sum());
+        stats.put("statusHits", hitCount);
+        stats.put("statusMisses", misses.sum());
+        stats.put("statusHitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("revokedRejected", revokedRejected.sum());
+        stats.put("unknownUserRejected", unknownRejected.sum());
+        stats.put("evicted", evicted.sum());
+        return stats;
+    }
+
+    private record CachedStatus(AccountStatus status, long expiresAt) {}
+}
@@ -0,0 +1,212 @@
+package com.example.demo.security;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-client request limits for the expensive route groups: product search
+ * (listings with a {@code search} term), market reads, order creation and
+ * auth. A client is the signed-in user, or
+ * the remote address for anonymous requests. Each group allows
+ * {@code perMinute} requests a minute on average with bursts of up to
+ * {@code burst}.
+ *
+ * Each client and group has a token bucket kept as a single timestamp, the
+ * time at which the bucket will be full again (GCRA), advanced with
+ * compare-and-set, so checks never lock. A bucket that has refilled holds no
+ * information and is dropped by the sweep every {@code app.rateLimitSweepMs}.
+ * At most {@code app.rateLimitMaxBuckets} are kept. When they are all in
+ * use, one pass drops the refilled buckets, then arbitrary ones until a tenth
+ * of the room is free, so a flood of new clients pays for a pass once per
+ * batch rather than once per client.
+ */
+@Service
+public class RateLimiter {
+
+    @Value("${app.rateLimitSearchPerMinute:120}")
+    private int searchPerMinute;
+
+    @Value("${app.rateLimitSearchBurst:30}")
+    private int searchBurst;
+
+    @Value("${app.rateLimitMarketPerMinute:300}")
+    private int marketPerMinute;
+
+    @Value("${app.rateLimitMarketBurst:60}")
+    private int marketBurst;
+
+    @Value("${app.rateLimitOrdersPerMinute:30}")
+    private int ordersPerMinute;
+
+    @Value("${app.rateLimitOrdersBurst:10}")
+    private int ordersBurst;
+
+    @Value("${app.rateLimitAuthPerMinute:20}")
+    private int authPerMinute;
+
+    @Value("${app.rateLimitAuthBurst:10}")
+    private int authBurst;
+
+    @Value("${app.rateLimitMaxBuckets:100000}")
+    private int maxBuckets;
+
+    private List<Group> groups;
+
+    // "group|client" -> time the bucket is full again, in System.nanoTime()
+    private final ConcurrentMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private final LongAdder evicted = new LongAdder();
+
+    // Held by the one thread making room; others insert meanwhile and overshoot by a bucket each
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    @PostConstruct
+    void init() {
+        groups = List.of(
+            // Plain listing pages are cheap; only a search term makes the request go through the index
+            new Group("search", "GET", "/api/products/all", "search", searchPerMinute, searchBurst),
+            new Group("market", "GET", "/api/market/", null, marketPerMinute, marketBurst),
+            new Group("orders", "POST", "/api/orders/create", null, ordersPerMinute, ordersBurst),
+            new Group("auth", "POST", "/api/auth/", null, authPerMinute, authBurst));
+    }
+
+    public record Decision(boolean allowed, int limit, int remaining, long resetSeconds, long retryAfterSeconds) {}
+
+    // Null when the request belongs to no limited group
+    public Decision check(HttpServletRequest request, Long userId) {
+        Group group = groupOf(request);
+        if (group == null) {
+            return null;
+        }
+        String client = userId != null ? "user:" + userId : "ip:" + request.getRemoteAddr();
+        Decision decision = acquire(group, group.name + "|" + client);
+        (decision.allowed() ? group.allowed : group.limited).increment();
+        return decision;
+    }
+
+    private Group groupOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (Group group : groups) {
+            if (group.method.equals(request.getMethod()) && path.startsWith(group.pathPrefix)
+                    && (group.requiredParam == null || hasText(request.getParameter(group.requiredParam)))) {
+                return group;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    private Decision acquire(Group group, String key) {
+        long now = System.nanoTime();
+        AtomicLong fullAt = buckets.get(key);
+        if (fullAt == null) {
+            if (buckets.size() >= maxBuckets) {
+                evict();
+            }
+            fullAt = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        long capacity = group.intervalNanos * group.burst;
+        while (true) {
+            long current = fullAt.get();
+            long base = current - now > 0 ? current : now;
+            long next = base + group.intervalNanos;
+            long overflow = next - now - capacity;
+            if (overflow > 0) {
+                return new Decision(false, group.burst, 0, seconds(current - now), seconds(overflow));
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                int remaining = (int) ((capacity - (next - now)) / group.intervalNanos);
+                return new Decision(true, group.burst, remaining, seconds(next - now), 0);
+            }
+        }
+    }
+
+    private static long seconds(long nanos) {
+        return nanos <= 0 ? 0 : (nanos + 999_999_999) / 1_000_000_000;
+    }
+
+    @Scheduled(fixedDelayString = "${app.rateLimitSweepMs:60000}", initialDelayString = "${app.rateLimitSweepMs:60000}")
+    public void sweep() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(fullAt -> fullAt.get() - now <= 0);
+    }
+
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sweep();
+            int excess = buckets.size() - (maxBuckets - Math.max(1, maxBuckets / 10));
+            Iterator<AtomicLong> entries = buckets.values().iterator();
+            while (excess > 0 && entries.hasNext()) {
+                entries.next();
+                entries.remove();
+                evicted.increment();
+                excess--;
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> perGroup = new LinkedHashMap<>();
+        for (Group group : groups) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("route", group.method + " " + group.pathPrefix
+                + (group.requiredParam != null ? "?" + group.requiredParam + "=" : ""));
+            entry.put("perMinute", TimeUnit.MINUTES.toNanos(1) / group.intervalNanos);
+            entry.put("burst", group.burst);
+            entry.put("allowed", group.allowed.sum());
+            entry.put("limited", group.limited.sum());
+            perGroup.put(group.name, entry);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("buckets", buckets.size());
+        stats.put("maxBuckets", maxBuckets);
+        stats.put("evicted", evicted.sum());
+        stats.put("groups", perGroup);
+        return stats;
+    }
+
+    private static final class Group {
+        final String name;
+        final String method;
+        final String pathPrefix;
+        // Query parameter that must be present and non-blank, or null
+        final String requiredParam;
+        final long intervalNanos;
+        final int burst;
+        final LongAdder allowed = new LongAdder();
+        final LongAdder limited = new LongAdder();
+
+        Group(String name, String method, String pathPrefix, String requiredParam, int perMinute, int burst) {
+            this.name = name;
+            this.method = method;
+            this.pathPrefix = pathPrefix;
+            this.requiredParam = requiredParam;
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, perMinute);
+            this.burst = Math.max(1, burst);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.security;
+
+import com.example.demo.model.RevokedToken;
+import com.example.demo.repository.RevokedTokenRepository;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The ids of tokens revoked before they expire, kept in memory so checking a
+ * token is one hash lookup. The set is loaded from revoked_tokens at startup
+ * and picks up revocations made by other instances every
+ * {@code app.tokenRevocationSyncMs}. A revoked id is only kept until its
+ * token would have expired, so the set stays as small as the number of
+ * revocations within one token lifetime.
+ */
+@Service
+public class TokenRevocations {
+
+    // Revocations committed by other instances shortly before the last one seen are read again
+    private static final long SYNC_OVERLAP_SECONDS = 5;
+
+    @Autowired
+    RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    // jti -> expiry of the revoked token, epoch millis
+    private final ConcurrentMap<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private volatile LocalDateTime lastRevokedAt;
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder revocations = new LongAdder();
+    private final LongAdder purged = new LongAdder();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (RevokedToken token : revokedTokenRepository.findByExpiresAtAfter(LocalDateTime.now())) {
+            remember(token);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.tokenRevocationSyncMs:30000}", initialDelayString = "${app.tokenRevocationSyncMs:30000}")
+    public void sync() {
+        try {
+            LocalDateTime since = lastRevokedAt;
+            if (since != null) {
+                for (RevokedToken token : revokedTokenRepository.findByRevokedAtAfter(since.minusSeconds(SYNC_OVERLAP_SECONDS))) {
+                    remember(token);
+                }
+            } else {
+                load();
+            }
+
+            long now = System.currentTimeMillis();
+            int before = revoked.size();
+            revoked.values().removeIf(expiresAt -> expiresAt <= now);
+            purged.add(before - revoked.size());
+            LocalDateTime cutoff = LocalDateTime.now();
+            new TransactionTemplate(transactionManager).executeWithoutResult(
+                    status -> revokedTokenRepository.deleteExpired(cutoff));
+        } catch (RuntimeException e) {
+            System.err.println("Could not sync token revocations: " + e.getMessage());
+        }
+    }
+
+    public boolean isRevoked(Claims claims) {
+        checks.increment();
+        // Tokens issued without an id cannot be revoked one by one; they simply expire
+        if (claims.getId() == null || !revoked.containsKey(claims.getId())) {
+            return false;
+        }
+        rejected.increment();
+        return true;
+    }
+
+    /**
+     * Revokes the token until it expires. Returns false when it already was,
+     * so of two callers racing to use a token once only one succeeds.
+     */
+    public boolean revoke(Claims claims, Long userId) {
+        if (claims.getId() == null || claims.getExpiration() == null) {
+            return false;
+        }
+        if (revoked.putIfAbsent(claims.getId(), claims.getExpiration().getTime()) != null) {
+            return false;
+        }
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault());
+        try {
+            remember(revokedTokenRepository.save(new RevokedToken(claims.getId(), userId, expiresAt)));
+        } catch (RuntimeException e) {
+            revoked.remove(claims.getId());
+            throw e;
+        }
+        revocations.increment();
+        return true;
+    }
+
+    private void remember(RevokedToken token) {
+        revoked.put(token.getJti(), token.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        if (lastRevokedAt == null || token.getRevokedAt().isAfter(lastRevokedAt)) {
+            lastRevokedAt = token.getRevokedAt();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("revokedTokens", revoked.size());
+        stats.put("lastRevokedAt", lastRevokedAt);
+        stats.put("checks", checks.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("revocations", revocations.sum());
+        stats.put("purged", purged.sum());
+        return stats;
+    }
+}
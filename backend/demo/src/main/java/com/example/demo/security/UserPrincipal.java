@@ -1,6 +1,7 @@
 package com.example.demo.security;
 
 import com.example.demo.model.User;
+import com.example.demo.model.UserType;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -14,6 +15,7 @@ public class UserPrincipal implements UserDetails {
     private String name;
     private String email;
     private String password;
+    private UserType userType;
     private Collection<? extends GrantedAuthority> authorities;
 
     public UserPrincipal(Long id, String name, String email, String password, Collection<? extends GrantedAuthority> authorities) {
@@ -24,15 +26,18 @@ public class UserPrincipal implements UserDetails {
         this.authorities = authorities;
     }
 
-    public static UserPrincipal create(User user) {
-        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_" + user.getUserType().name()));
+    public UserPrincipal(Long id, String name, String email, String password, UserType userType) {
+        this(id, name, email, password, List.of(new SimpleGrantedAuthority("ROLE_" + userType.name())));
+        this.userType = userType;
+    }
 
+    public static UserPrincipal create(User user) {
         return new UserPrincipal(
                 user.getId(),
                 user.getName(),
                 user.getEmail(),
                 user.getPassword(),
-                authorities
+                user.getUserType()
         );
     }
 
@@ -48,6 +53,10 @@ public class UserPrincipal implements UserDetails {
         return email;
     }
 
+    public UserType getUserType() {
+        return userType;
+    }
+
     @Override
     public String getUsername() {
         return email;
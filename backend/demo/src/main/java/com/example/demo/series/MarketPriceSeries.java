@@ -0,0 +1,263 @@
+package com.example.demo.series;
+
+import com.example.demo.model.MarketPrice;
+import com.example.demo.model.ProductCategory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The price ticks of one product in one region, stored column by column in
+ * direct buffers outside the Java heap and kept sorted by (recordDate, id).
+ * Times are epoch microseconds and prices are fixed-point longs, so a series
+ * of any length is a handful of objects to the garbage collector and range
+ * scans are tight loops over primitive columns.
+ */
+final class MarketPriceSeries {
+
+    // Matches the scale of the price columns in market_prices
+    static final int PRICE_SCALE = 2;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int COLUMNS = 8;
+    private static final long NULL_VALUE = Long.MIN_VALUE;
+    private static final ProductCategory[] CATEGORIES = ProductCategory.values();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Every spelling seen for the product and region; rows refer to them by position
+    private final List<String> names = new ArrayList<>();
+    private final List<String> regions = new ArrayList<>();
+
+    private LongBuffer times;
+    private LongBuffer ids;
+    private LongBuffer createdTimes;
+    private LongBuffer averages;
+    private LongBuffer minimums;
+    private LongBuffer maximums;
+    private LongBuffer quantities;
+    // category ordinal | region index << 8 | name index << 32
+    private LongBuffer labels;
+
+    private int size;
+
+    MarketPriceSeries() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Inserts the tick at its place in time order. A tick already present,
+     * by record date and id, is ignored, so overlapping loads are harmless.
+     */
+    void add(MarketPrice price) {
+        long time = toMicros(price.getRecordDate());
+        long id = price.getId();
+
+        lock.writeLock().lock();
+        try {
+            int position = firstAfter(time, id - 1);
+            if (position < size && times.get(position) == time && ids.get(position) == id) {
+                return;
+            }
+            if (size == times.capacity()) {
+                allocate(size * 2);
+            }
+            // Ticks usually arrive in time order, so this is nearly always an append
+            for (int i = size; i > position; i--) {
+                copyRow(i - 1, i);
+            }
+            times.put(position, time);
+            ids.put(position, id);
+            createdTimes.put(position, price.getCreatedAt() == null ? NULL_VALUE : toMicros(price.getCreatedAt()));
+            averages.put(position, toFixed(price.getAveragePrice()));
+            minimums.put(position, toFixed(price.getMinPrice()));
+            maximums.put(position, toFixed(price.getMaxPrice()));
+            quantities.put(position, price.getTotalQuantityTraded() == null ? NULL_VALUE : price.getTotalQuantityTraded());
+            labels.put(position, price.getCategory().ordinal()
+                | (long) indexOf(regions, price.getRegion()) << 8
+                | (long) indexOf(names, price.getProductName()) << 32);
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Adds the sum of average prices (fixed-point) and the tick count from `from` on to totals
+    void addTotals(long from, long[] totals) {
+        lock.readLock().lock();
+        try {
+            long sum = 0;
+            int start = firstAtOrAfter(from);
+            for (int i = start; i < size; i++) {
+                sum += averages.get(i);
+            }
+            totals[0] += sum;
+            totals[1] += size - start;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Drops every tick recorded before `time`
+    void removeBefore(long time) {
+        lock.writeLock().lock();
+        try {
+            int removed = firstAtOrAfter(time);
+            if (removed == 0) {
+                return;
+            }
+            for (int i = removed; i < size; i++) {
+                copyRow(i, i - removed);
+            }
+            size -= removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Up to limit ticks after (time, id) and at or before `to`, oldest first
+    void collectAfter(long time, long id, long to, int limit, List<MarketPrice> out) {
+        lock.readLock().lock();
+        try {
+            int end = firstAtOrAfter(to + 1);
+            for (int i = firstAfter(time, id); i < end && limit-- > 0; i++) {
+                out.add(row(i));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The newest limit ticks, newest first
+    void collectLatest(int limit, List<MarketPrice> out) {
+        lock.readLock().lock();
+        try {
+            for (int i = size - 1; i >= 0 && limit-- > 0; i--) {
+                out.add(row(i));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) times.capacity() * Long.BYTES * COLUMNS;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private MarketPrice row(int i) {
+        long label = labels.get(i);
+        MarketPrice price = new MarketPrice(
+            CATEGORIES[(int) (label & 0xFF)],
+            names.get((int) (label >>> 32)),
+            fromFixed(averages.get(i)),
+            fromFixed(minimums.get(i)),
+            fromFixed(maximums.get(i)),
+            regions.get((int) ((label >>> 8) & 0xFFFFFF)),
+            quantities.get(i) == NULL_VALUE ? null : (int) quantities.get(i));
+        price.setId(ids.get(i));
+        price.setRecordDate(fromMicros(times.get(i)));
+        price.setCreatedAt(createdTimes.get(i) == NULL_VALUE ? null : fromMicros(createdTimes.get(i)));
+        return price;
+    }
+
+    // First index whose time is at or after `time`
+    private int firstAtOrAfter(long time) {
+        return firstAfter(time, Long.MIN_VALUE);
+    }
+
+    // First index ordered after (time, id)
+    private int firstAfter(long time, long id) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            long midTime = times.get(mid);
+            if (midTime < time || (midTime == time && ids.get(mid) <= id)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void copyRow(int from, int to) {
+        times.put(to, times.get(from));
+        ids.put(to, ids.get(from));
+        createdTimes.put(to, createdTimes.get(from));
+        averages.put(to, averages.get(from));
+        minimums.put(to, minimums.get(from));
+        maximums.put(to, maximums.get(from));
+        quantities.put(to, quantities.get(from));
+        labels.put(to, labels.get(from));
+    }
+
+    private void allocate(int capacity) {
+        times = grow(times, capacity);
+        ids = grow(ids, capacity);
+        createdTimes = grow(createdTimes, capacity);
+        averages = grow(averages, capacity);
+        minimums = grow(minimums, capacity);
+        maximums = grow(maximums, capacity);
+        quantities = grow(quantities, capacity);
+        labels = grow(labels, capacity);
+    }
+
+    private LongBuffer grow(LongBuffer column, int capacity) {
+        LongBuffer grown = ByteBuffer.allocateDirect(capacity * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        if (column != null) {
+            grown.put(0, column, 0, size);
+        }
+        return grown;
+    }
+
+    private static int indexOf(List<String> dictionary, String value) {
+        int index = dictionary.indexOf(value);
+        if (index < 0) {
+            dictionary.add(value);
+            index = dictionary.size() - 1;
+        }
+        return index;
+    }
+
+    // Rounded to the microsecond, as the database stores it
+    static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + (time.getNano() + 500) / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+            (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    private static long toFixed(BigDecimal price) {
+        return price.setScale(PRICE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal fromFixed(long price) {
+        return BigDecimal.valueOf(price, PRICE_SCALE);
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.demo.series;
+
+import com.example.demo.dto.PriceTotals;
+import com.example.demo.model.MarketPrice;
+import com.example.demo.repository.MarketPriceRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory mirror of the recent {@code market_prices} rows, one columnar
+ * {@link MarketPriceSeries} per product and region. It is loaded once the
+ * application is ready and kept current by {@code MarketPriceService}, which
+ * appends every committed price. Until loading finishes, and for periods older
+ * than {@code app.marketSeriesDays}, callers must fall back to the database;
+ * {@link #covers(LocalDateTime)} tells them which applies.
+ */
+@Component
+public class MarketPriceSeriesStore {
+
+    private static final Comparator<MarketPrice> TIME_ORDER =
+        Comparator.comparing(MarketPrice::getRecordDate).thenComparing(MarketPrice::getId);
+
+    @Value("${app.marketSeriesEnabled:true}")
+    private boolean enabled;
+
+    @Value("${app.marketSeriesDays:365}")
+    private int days;
+
+    @Autowired
+    MarketPriceRepository marketPriceRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    // product key -> region key -> series; a blank region is the empty key
+    private final ConcurrentMap<String, ConcurrentMap<String, MarketPriceSeries>> series = new ConcurrentHashMap<>();
+
+    private volatile LocalDateTime coveredFrom;
+    private volatile boolean ready;
+    private volatile long loadMs;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        LocalDateTime from = LocalDate.now().minusDays(days).atStartOfDay();
+        coveredFrom = from;
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<MarketPrice> prices = marketPriceRepository.streamRecordedSince(from)) {
+                prices.forEach(price -> {
+                    add(price);
+                    entityManager.detach(price);
+                });
+            }
+        });
+        loadMs = System.currentTimeMillis() - started;
+        ready = true;
+    }
+
+    /**
+     * Adds committed prices. Prices committed while loading may arrive twice,
+     * once here and once from the load; the series keeps only one copy.
+     */
+    public void appendAll(Collection<MarketPrice> prices) {
+        if (!enabled) {
+            return;
+        }
+        for (MarketPrice price : prices) {
+            add(price);
+        }
+    }
+
+    private void add(MarketPrice price) {
+        series.computeIfAbsent(price.getProductKey(), key -> new ConcurrentHashMap<>())
+            .computeIfAbsent(MarketPrice.regionKeyOf(price.getRegion()), key -> new MarketPriceSeries())
+            .add(price);
+    }
+
+    // Whether every price recorded from `since` on is held here
+    public boolean covers(LocalDateTime since) {
+        return ready && !since.isBefore(coveredFrom);
+    }
+
+    /**
+     * Mean of the average price of every tick recorded from {@code since} on;
+     * region null means all regions. Only meaningful when {@link #covers} holds.
+     */
+    public Optional<BigDecimal> average(String productName, String region, LocalDateTime since) {
+        return Optional.ofNullable(totals(productName, region, since).average(MarketPriceSeries.PRICE_SCALE));
+    }
+
+    // Sum and count of the average prices from `since` on, to combine with rollups
+    public PriceTotals totals(String productName, String region, LocalDateTime since) {
+        long[] totals = new long[2];
+        for (MarketPriceSeries regionSeries : select(productName, region)) {
+            regionSeries.addTotals(MarketPriceSeries.toMicros(since), totals);
+        }
+        return new PriceTotals(BigDecimal.valueOf(totals[0], MarketPriceSeries.PRICE_SCALE), totals[1]);
+    }
+
+    /**
+     * Drops the ticks recorded before {@code cutoff}, once retention has
+     * deleted them from the table, and stops claiming to cover that period.
+     */
+    public void evictBefore(LocalDateTime cutoff) {
+        if (!enabled || coveredFrom == null) {
+            return;
+        }
+        if (cutoff.isAfter(coveredFrom)) {
+            coveredFrom = cutoff;
+        }
+        long time = MarketPriceSeries.toMicros(cutoff);
+        for (Map<String, MarketPriceSeries> regions : series.values()) {
+            for (MarketPriceSeries regionSeries : regions.values()) {
+                regionSeries.removeBefore(time);
+            }
+        }
+    }
+
+    /**
+     * The newest {@code limit} ticks, newest first. Fewer than {@code limit}
+     * means older ticks may exist beyond what is held here.
+     */
+    public List<MarketPrice> latest(String productName, String region, int limit) {
+        List<MarketPrice> latest = new ArrayList<>();
+        for (MarketPriceSeries regionSeries : select(productName, region)) {
+            regionSeries.collectLatest(limit, latest);
+        }
+        latest.sort(TIME_ORDER.reversed());
+        return latest.size() > limit ? new ArrayList<>(latest.subList(0, limit)) : latest;
+    }
+
+    /**
+     * Up to {@code limit} ticks recorded after {@code after} (a tick already
+     * returned, or null to start at {@code since}) and no later than
+     * {@code until}, oldest first. Paging this way stays correct while ticks
+     * are being inserted.
+     */
+    public List<MarketPrice> page(String productName, String region, LocalDateTime since, LocalDateTime until,
+                                  MarketPrice after, int limit) {
+        long time = after != null ? MarketPriceSeries.toMicros(after.getRecordDate()) : MarketPriceSeries.toMicros(since) - 1;
+        long id = after != null ? after.getId() : Long.MAX_VALUE;
+        long to = MarketPriceSeries.toMicros(until);
+
+        List<MarketPrice> page = new ArrayList<>();
+        for (MarketPriceSeries regionSeries : select(productName, region)) {
+            regionSeries.collectAfter(time, id, to, limit, page);
+        }
+        page.sort(TIME_ORDER);
+        return page.size() > limit ? new ArrayList<>(page.subList(0, limit)) : page;
+    }
+
+    private Collection<MarketPriceSeries> select(String productName, String region) {
+        Map<String, MarketPriceSeries> regions = series.get(MarketPrice.keyOf(productName));
+        if (regions == null) {
+            return List.of();
+        }
+        if (region == null) {
+            return regions.values();
+        }
+        MarketPriceSeries regionSeries = regions.get(MarketPrice.regionKeyOf(region));
+        return regionSeries == null ? List.of() : List.of(regionSeries);
+    }
+
+    public Map<String, Object> getStats() {
+        long seriesCount = 0;
+        long ticks = 0;
+        long offHeapBytes = 0;
+        for (Map<String, MarketPriceSeries> regions : series.values()) {
+            for (MarketPriceSeries regionSeries : regions.values()) {
+                seriesCount++;
+                ticks += regionSeries.size();
+                offHeapBytes += regionSeries.offHeapBytes();
+            }
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", ready);
+        stats.put("coveredFrom", coveredFrom);
+        stats.put("loadMs", loadMs);
+        stats.put("products", series.size());
+        stats.put("series", seriesCount);
+        stats.put("ticks", ticks);
+        stats.put("offHeapBytes", offHeapBytes);
+        return stats;
+    }
+}
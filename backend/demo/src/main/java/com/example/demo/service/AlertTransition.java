@@ -0,0 +1,21 @@
+package com.example.demo.service;
+
+import com.example.demo.model.MarketPrice;
+import com.example.demo.model.PriceAlert;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A change to an alert's evaluation state, with the state copied at the time
+ * of the change so it can be written after the alert has moved on.
+ * {@code movedFrom} is the reference a PERCENT_MOVE alert fired against.
+ */
+record AlertTransition(PriceAlert alert, MarketPrice price, boolean fired, BigDecimal movedFrom, boolean armed,
+                       BigDecimal referencePrice, long triggerCount, LocalDateTime lastTriggeredAt) {
+
+    static AlertTransition of(PriceAlert alert, MarketPrice price, boolean fired, BigDecimal movedFrom) {
+        return new AlertTransition(alert, price, fired, movedFrom, alert.isArmed(), alert.getReferencePrice(),
+            alert.getTriggerCount(), alert.getLastTriggeredAt());
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.demo.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out entity ids from blocks reserved in the {@code id_blocks} table, so
+ * a whole block of inserts costs one extra round-trip instead of one per row.
+ * Blocks are reserved on a dedicated single-connection pool: a thread that
+ * needs a new block while holding an application connection and row locks
+ * never waits on the shared pool, which other such threads may have drained.
+ */
+@Service
+public class IdBlockAllocator {
+
+    @Value("${app.idBlockSize:50}")
+    private int blockSize;
+
+    @Autowired
+    DataSourceProperties dataSourceProperties;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("id-blocks");
+        dataSource.setMaximumPoolSize(1);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @PreDestroy
+    void close() {
+        dataSource.close();
+    }
+
+    public long next(String sequence) {
+        Block block = blocks.computeIfAbsent(sequence, name -> new Block());
+        synchronized (block) {
+            if (block.next == block.limit) {
+                block.limit = reserve(sequence);
+                block.next = block.limit - blockSize;
+                block.reservations++;
+            }
+            block.issued++;
+            return block.next++;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> sequences = new TreeMap<>();
+        blocks.forEach((sequence, block) -> {
+            synchronized (block) {
+                Map<String, Object> stats = new LinkedHashMap<>();
+                stats.put("issued", block.issued);
+                stats.put("blocksReserved", block.reservations);
+                stats.put("remainingInBlock", block.limit - block.next);
+                sequences.put(sequence, stats);
+            }
+        });
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("blockSize", blockSize);
+        stats.put("sequences", sequences);
+        return stats;
+    }
+
+    // Returns the exclusive upper bound of a freshly reserved block
+    private long reserve(String sequence) {
+        while (true) {
+            Long limit = transactionTemplate.execute(status -> {
+                int updated = jdbcTemplate.update(
+                    "UPDATE id_blocks SET next_val = next_val + ? WHERE sequence_name = ?", blockSize, sequence);
+                if (updated == 0) {
+                    return null;
+                }
+                return jdbcTemplate.queryForObject(
+                    "SELECT next_val FROM id_blocks WHERE sequence_name = ?", Long.class, sequence);
+            });
+            if (limit != null) {
+                return limit;
+            }
+
+            // First block of this sequence: start above any rows the table already holds
+            try {
+                return transactionTemplate.execute(status -> {
+                    long start = jdbcTemplate.queryForObject(
+                        "SELECT COALESCE(MAX(id), 0) + 1 FROM " + sequence, Long.class);
+                    jdbcTemplate.update("INSERT INTO id_blocks (sequence_name, next_val) VALUES (?, ?)",
+                        sequence, start + blockSize);
+                    return start + blockSize;
+                });
+            } catch (DuplicateKeyException e) {
+                // Another instance created the row first; reserve from it instead
+            }
+        }
+    }
+
+    private static final class Block {
+        long next;
+        long limit;
+        long issued;
+        long reservations;
+    }
+}
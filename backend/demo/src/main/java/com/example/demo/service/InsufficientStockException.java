@@ -0,0 +1,18 @@
+package com.example.demo.service;
+
+/**
+ * Thrown when an order line cannot be reserved. Rolls back the surrounding
+ * order transaction, so no line of the order is kept.
+ */
+public class InsufficientStockException extends RuntimeException {
+    private final Long productId;
+
+    public InsufficientStockException(Long productId, String message) {
+        super(message);
+        this.productId = productId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+}
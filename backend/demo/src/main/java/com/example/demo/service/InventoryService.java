@@ -0,0 +1,105 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Product;
+import com.example.demo.model.ProductStatus;
+import com.example.demo.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reserves stock with a single conditional UPDATE covering every line of an
+ * order, so the availability check and the decrement are one atomic step in
+ * the database and concurrent orders cannot oversell a listing.
+ */
+@Service
+public class InventoryService {
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    /**
+     * Decrements stock for every product in {@code quantities}, or throws
+     * {@link InsufficientStockException} and rolls the caller's transaction
+     * back. {@code products} is the caller's snapshot of the same rows and is
+     * only used to explain a rejection; it is detached afterwards, so reading
+     * the products again loads them as reserved, with their current prices.
+     * Returns the ids of products that sold out.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Long> reserve(Map<Long, Integer> quantities, Map<Long, Product> products) {
+        // Sorted so the statement text, and its cached plan, only depend on the line count
+        List<Map.Entry<Long, Integer>> lines = List.copyOf(new TreeMap<>(quantities).entrySet());
+
+        StringBuilder status = new StringBuilder("CASE");
+        StringBuilder decrement = new StringBuilder("CASE p.id");
+        StringBuilder guard = new StringBuilder();
+        for (int i = 0; i < lines.size(); i++) {
+            status.append(" WHEN p.id = :id").append(i)
+                .append(" AND p.quantityAvailable = :qty").append(i).append(" THEN :outOfStock");
+            decrement.append(" WHEN :id").append(i).append(" THEN :qty").append(i);
+            guard.append(i == 0 ? "(" : " OR (")
+                .append("p.id = :id").append(i)
+                .append(" AND p.quantityAvailable >= :qty").append(i).append(")");
+        }
+
+        Query update = entityManager.createQuery(
+            "UPDATE Product p SET " +
+            "p.status = " + status + " ELSE p.status END, " +
+            "p.quantityAvailable = p.quantityAvailable - " + decrement + " ELSE 0 END, " +
+            "p.updatedAt = :now " +
+            "WHERE p.id IN :ids AND p.status = :available AND (" + guard + ")");
+        for (int i = 0; i < lines.size(); i++) {
+            update.setParameter("id" + i, lines.get(i).getKey());
+            update.setParameter("qty" + i, lines.get(i).getValue());
+        }
+        update.setParameter("ids", quantities.keySet());
+        update.setParameter("available", ProductStatus.AVAILABLE);
+        update.setParameter("outOfStock", ProductStatus.OUT_OF_STOCK);
+        update.setParameter("now", LocalDateTime.now());
+
+        // Status is assigned before the decrement because MySQL evaluates SET clauses left to right.
+        // Each guarded row matches at most once, so a short count means some line could not be reserved
+        if (update.executeUpdate() != lines.size()) {
+            throw rejection(lines, products);
+        }
+        // The bulk update bypassed the persistence context, which would otherwise keep serving the stale snapshot
+        products.values().forEach(entityManager::detach);
+
+        return productRepository.findIdsByIdInAndStatus(quantities.keySet(), ProductStatus.OUT_OF_STOCK);
+    }
+
+    // Only reached on failure; the snapshot usually names the offending line without another query
+    private InsufficientStockException rejection(List<Map.Entry<Long, Integer>> lines, Map<Long, Product> products) {
+        for (Map.Entry<Long, Integer> line : lines) {
+            Product product = products.get(line.getKey());
+            if (product == null) {
+                return new InsufficientStockException(line.getKey(), "Product not found with ID: " + line.getKey());
+            }
+            if (product.getStatus() != ProductStatus.AVAILABLE) {
+                return new InsufficientStockException(line.getKey(),
+                    "Product '" + product.getName() + "' is not available!");
+            }
+            if (product.getQuantityAvailable() < line.getValue()) {
+                return new InsufficientStockException(line.getKey(),
+                    "Insufficient quantity for product '" + product.getName() + "'");
+            }
+        }
+        // The snapshot looked fine, so another order took the stock in between
+        Long productId = lines.get(0).getKey();
+        return new InsufficientStockException(productId,
+            "Stock changed while placing the order, please try again");
+    }
+}
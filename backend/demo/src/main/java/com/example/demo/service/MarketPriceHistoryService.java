@@ -0,0 +1,86 @@
+package com.example.demo.service;
+
+import com.example.demo.model.MarketPrice;
+import com.example.demo.repository.MarketPriceRepository;
+import com.example.demo.series.MarketPriceSeriesStore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes a product's price history as a JSON array straight from a database
+ * cursor, or page by page from the in-memory series. Either way memory use
+ * does not depend on how long the history is.
+ */
+@Service
+public class MarketPriceHistoryService {
+
+    private static final int SERIES_PAGE_SIZE = 500;
+
+    @Autowired
+    MarketPriceRepository marketPriceRepository;
+
+    @Autowired
+    MarketPriceSeriesStore marketPriceSeriesStore;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    // Rows go out as the generator's buffer fills, not one socket write each
+    private ObjectWriter rowWriter;
+
+    @PostConstruct
+    void init() {
+        rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    // Each row is serialized and detached before the next is read
+    @Transactional(readOnly = true)
+    public void writeHistory(String productName, String region, LocalDateTime since, LocalDateTime until,
+                             OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+             Stream<MarketPrice> prices = marketPriceRepository.streamHistory(
+                 MarketPrice.keyOf(productName), MarketPrice.keyOf(region), since, until)) {
+            generator.writeStartArray();
+            for (MarketPrice price : (Iterable<MarketPrice>) prices::iterator) {
+                rowWriter.writeValue(generator, price);
+                entityManager.detach(price);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    // Same output as writeHistory; only valid when the series store covers `since`
+    public void writeSeriesHistory(String productName, String region, LocalDateTime since, LocalDateTime until,
+                                   OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            MarketPrice last = null;
+            List<MarketPrice> page;
+            do {
+                page = marketPriceSeriesStore.page(productName, region, since, until, last, SERIES_PAGE_SIZE);
+                for (MarketPrice price : page) {
+                    rowWriter.writeValue(generator, price);
+                    last = price;
+                }
+            } while (page.size() == SERIES_PAGE_SIZE);
+            generator.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.IngestReport;
+import com.example.demo.dto.MarketPriceTick;
+import com.example.demo.model.MarketPrice;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TypeMismatchDataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Accepts market price ticks into a bounded in-memory buffer and writes them
+ * in batches through {@link MarketPriceService#recordAll}. Requests only
+ * validate and enqueue, so they return as fast as the body can be read; a
+ * single flusher turns the buffer into batched inserts of up to
+ * {@code batchSize} ticks at least every {@code flushMs}. When the buffer is
+ * full, ticks are refused rather than queued without bound, and the caller is
+ * told where to resume.
+ *
+ * A batch the database cannot take right now is kept and retried with
+ * backoff for as long as that lasts, and nothing else is drained meanwhile,
+ * so an outage fills the buffer and turns into 429s instead of lost ticks. A
+ * batch refused for its data is split in halves until the offending ticks
+ * are isolated; only those are dropped.
+ */
+@Service
+public class MarketPriceIngestService {
+
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    // Time constant of the smoothed ingest rate
+    private static final double RATE_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    @Value("${app.marketIngestCapacity:50000}")
+    private int capacity;
+
+    @Value("${app.marketIngestBatchSize:1000}")
+    private int batchSize;
+
+    @Value("${app.marketIngestFlushMs:250}")
+    private long flushMs;
+
+    @Value("${app.marketIngestMaxBackoffMs:30000}")
+    private long maxBackoffMs;
+
+    @Value("${app.marketIngestMaxErrors:100}")
+    private int maxErrors;
+
+    @Autowired
+    MarketPriceService marketPriceService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    Validator validator;
+
+    private BlockingQueue<MarketPrice> buffer;
+
+    // Batches drained but not yet written, first to be written in front; flusher thread only
+    private final Deque<List<MarketPrice>> pending = new ArrayDeque<>();
+    // Consecutive failed writes and when the next may be tried, in System.nanoTime(); flusher thread only
+    private volatile int failedWrites;
+    private long retryAt;
+    // Ticks in pending, readable from other threads
+    private volatile int pendingTicks;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder splits = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+    private final LongAccumulator maxFlushNanos = new LongAccumulator(Math::max, 0);
+    private volatile long lastFlushNanos;
+
+    private volatile double ingestRate;
+    private long rateSampledAt = System.nanoTime();
+    private long rateSampledCount;
+
+    @PostConstruct
+    void init() {
+        buffer = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Validates and enqueues every tick of {@code body}, a JSON array or
+     * NDJSON. Invalid ticks are reported and skipped. Throws
+     * IllegalArgumentException when a JSON body is not an array.
+     */
+    public IngestReport ingest(InputStream body, MediaType contentType) throws IOException {
+        IngestReport report = new IngestReport(maxErrors);
+        if (APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+            Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+            readNdjson(new BufferedReader(new InputStreamReader(body, charset)), report);
+        } else {
+            readArray(body, report);
+        }
+        return report;
+    }
+
+    private void readArray(InputStream body, IngestReport report) throws IOException {
+        ObjectReader tickReader = objectMapper.readerFor(MarketPriceTick.class);
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of price ticks");
+            }
+            long element = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                element++;
+                // Read as a tree first, so a bad value only rejects its own element
+                JsonNode node = parser.readValueAsTree();
+                MarketPriceTick tick;
+                try {
+                    tick = tickReader.treeToValue(node, MarketPriceTick.class);
+                } catch (JsonProcessingException e) {
+                    report.received();
+                    reject(report, element, describe(e));
+                    continue;
+                }
+                if (!offer(element, tick, report)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void readNdjson(BufferedReader reader, IngestReport report) throws IOException {
+        ObjectReader tickReader = objectMapper.readerFor(MarketPriceTick.class);
+        long line = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (text.isBlank()) {
+                continue;
+            }
+            MarketPriceTick tick;
+            try {
+                tick = tickReader.readValue(text);
+            } catch (JsonProcessingException e) {
+                report.received();
+                reject(report, line, describe(e));
+                continue;
+            }
+            if (!offer(line, tick, report)) {
+                return;
+            }
+        }
+    }
+
+    // False when the buffer is full; the tick is then left uncounted for the caller to resend
+    private boolean offer(long line, MarketPriceTick tick, IngestReport report) {
+        String problem = validate(tick);
+        if (problem != null) {
+            report.received();
+            reject(report, line, problem);
+            return true;
+        }
+        if (!buffer.offer(tick.toMarketPrice())) {
+            throttled.increment();
+            report.stoppedAt(line);
+            return false;
+        }
+        report.received();
+        report.imported(1);
+        accepted.increment();
+        return true;
+    }
+
+    private String validate(MarketPriceTick tick) {
+        Set<ConstraintViolation<MarketPriceTick>> violations = validator.validate(tick);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+        }
+        if (tick.getMinPrice().compareTo(tick.getMaxPrice()) > 0) {
+            return "minPrice: must not exceed maxPrice";
+        }
+        return null;
+    }
+
+    private void reject(IngestReport report, long line, String message) {
+        report.reject(line, message);
+        rejected.increment();
+    }
+
+    private String describe(JsonProcessingException e) {
+        if (e instanceof JsonMappingException mapping && !mapping.getPath().isEmpty()) {
+            String field = mapping.getPath().get(mapping.getPath().size() - 1).getFieldName();
+            if (field != null) {
+                return "Invalid value for '" + field + "'";
+            }
+        }
+        return "Malformed tick: " + e.getOriginalMessage();
+    }
+
+    /**
+     * Writes everything buffered, in batches of {@code batchSize}. When the
+     * database fails, the batch is kept and the next try waits twice as long
+     * as the last, from {@code flushMs} up to {@code maxBackoffMs}, with no
+     * limit on the number of tries; nothing else is drained meanwhile. A
+     * batch rejected for its data is halved and each half written on its
+     * own; a single tick rejected that way is dropped.
+     */
+    @Scheduled(fixedDelayString = "${app.marketIngestFlushMs:250}", initialDelayString = "${app.marketIngestFlushMs:250}")
+    public void flush() {
+        flush(false);
+    }
+
+    private synchronized void flush(boolean ignoreBackoff) {
+        sampleRate();
+        if (!ignoreBackoff && failedWrites > 0 && retryAt - System.nanoTime() > 0) {
+            return;
+        }
+        while (true) {
+            List<MarketPrice> batch = pending.peekFirst();
+            if (batch == null) {
+                batch = new ArrayList<>(Math.min(batchSize, buffer.size()));
+                buffer.drainTo(batch, batchSize);
+                if (batch.isEmpty()) {
+                    return;
+                }
+                pending.addFirst(batch);
+                pendingTicks += batch.size();
+            }
+            if (!write(batch)) {
+                return;
+            }
+        }
+    }
+
+    // False when the database failed and the flush should stop until the backoff has passed
+    private boolean write(List<MarketPrice> batch) {
+        long started = System.nanoTime();
+        try {
+            marketPriceService.recordAll(batch);
+        } catch (RuntimeException e) {
+            flushFailures.increment();
+            // The rolled-back save left generated ids behind; with them the retry would merge rows that do not exist
+            for (MarketPrice price : batch) {
+                price.setId(null);
+            }
+            if (!isDataError(e)) {
+                failedWrites++;
+                long backoffMs = Math.min(maxBackoffMs, flushMs << Math.min(failedWrites - 1, 20));
+                retryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs);
+                System.err.println("Market price write failed " + failedWrites + " times in a row, keeping "
+                    + pendingTicks + " ticks and retrying in " + backoffMs + " ms: " + e.getMessage());
+                return false;
+            }
+            pending.removeFirst();
+            if (batch.size() == 1) {
+                System.err.println("Dropping market price tick for '" + batch.get(0).getProductName()
+                    + "' rejected by the database: " + e.getMessage());
+                dropped.increment();
+                pendingTicks--;
+            } else {
+                splits.increment();
+                int half = batch.size() / 2;
+                pending.addFirst(new ArrayList<>(batch.subList(half, batch.size())));
+                pending.addFirst(new ArrayList<>(batch.subList(0, half)));
+            }
+            return true;
+        }
+        long elapsed = System.nanoTime() - started;
+        pending.removeFirst();
+        pendingTicks -= batch.size();
+        failedWrites = 0;
+        written.add(batch.size());
+        flushes.increment();
+        flushNanos.add(elapsed);
+        maxFlushNanos.accumulate(elapsed);
+        lastFlushNanos = elapsed;
+        return true;
+    }
+
+    // Errors caused by the ticks themselves, which no retry will fix; anything else is taken for the database being unavailable
+    private static boolean isDataError(RuntimeException e) {
+        return e instanceof DataIntegrityViolationException
+            || e instanceof TypeMismatchDataAccessException
+            || e instanceof jakarta.validation.ConstraintViolationException;
+    }
+
+    // Exponentially weighted, so the rate follows the last minute or so of traffic
+    private void sampleRate() {
+        long now = System.nanoTime();
+        long count = accepted.sum();
+        long elapsed = now - rateSampledAt;
+        if (elapsed <= 0) {
+            return;
+        }
+        double instant = (count - rateSampledCount) * 1e9 / elapsed;
+        ingestRate += (1 - Math.exp(-elapsed / RATE_WINDOW_NANOS)) * (instant - ingestRate);
+        rateSampledAt = now;
+        rateSampledCount = count;
+    }
+
+    // One last try at shutdown, backoff or not
+    @PreDestroy
+    void drain() {
+        flush(true);
+    }
+
+    // Roughly how long until a full buffer has room again
+    public long getRetryAfterSeconds() {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(flushMs + 999));
+    }
+
+    public Map<String, Object> getStats() {
+        long flushCount = flushes.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", buffer.size());
+        stats.put("pendingWrite", pendingTicks);
+        stats.put("capacity", capacity);
+        stats.put("batchSize", batchSize);
+        stats.put("flushIntervalMs", flushMs);
+        stats.put("ingestRatePerSecond", Math.round(ingestRate * 10) / 10.0);
+        stats.put("accepted", accepted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("throttled", throttled.sum());
+        stats.put("written", written.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("flushes", flushCount);
+        stats.put("flushFailures", flushFailures.sum());
+        stats.put("consecutiveFailures", failedWrites);
+        stats.put("batchSplits", splits.sum());
+        stats.put("lastFlushMs", lastFlushNanos / 1e6);
+        stats.put("avgFlushMs", flushCount == 0 ? 0.0 : flushNanos.sum() / 1e6 / flushCount);
+        stats.put("maxFlushMs", maxFlushNanos.get() / 1e6);
+        return stats;
+    }
+}
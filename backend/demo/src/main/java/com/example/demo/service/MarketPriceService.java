@@ -0,0 +1,341 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.PriceTotals;
+import com.example.demo.model.MarketPrice;
+import com.example.demo.model.MarketPriceRollup;
+import com.example.demo.model.PriceSketch;
+import com.example.demo.model.RollupGranularity;
+import com.example.demo.repository.MarketPriceRepository;
+import com.example.demo.repository.MarketPriceRollupRepository;
+import com.example.demo.series.MarketPriceSeriesStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Records market prices together with their daily, weekly and monthly
+ * rollups, and answers range queries from the rollups alone. Every price
+ * written through {@link #recordAll} is reflected in the rollups in the same
+ * transaction; rows inserted behind this service's back are not.
+ */
+@Service
+public class MarketPriceService {
+
+    @Value("${app.marketRawRetentionDays:90}")
+    private int rawRetentionDays;
+
+    @Autowired
+    MarketPriceRepository marketPriceRepository;
+
+    @Autowired
+    MarketPriceRollupRepository marketPriceRollupRepository;
+
+    @Autowired
+    MarketPriceSeriesStore marketPriceSeriesStore;
+
+    @Autowired
+    PriceAlertService priceAlertService;
+
+    @Autowired
+    MarketStreamService marketStreamService;
+
+    @Autowired
+    MarketReferencePrices marketReferencePrices;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    /**
+     * Saves the prices and folds them into their rollups in one transaction.
+     * Buckets that do not exist yet are created empty beforehand, each batch
+     * in a short transaction of its own, so writers never collide on
+     * inserting the same bucket. The main transaction only locks and updates
+     * existing rows, and writers touching the same buckets serialize on them.
+     */
+    public List<MarketPrice> recordAll(List<MarketPrice> prices) {
+        Set<RollupKey> keys = new HashSet<>();
+        for (MarketPrice price : prices) {
+            if (price.getRecordDate() == null) {
+                price.setRecordDate(LocalDateTime.now());
+            }
+            keys.addAll(rollupKeys(price));
+        }
+        Map<RollupKey, Long> bucketIds = createMissingBuckets(keys);
+
+        return new TransactionTemplate(transactionManager).execute(status -> saveWithRollups(prices, bucketIds));
+    }
+
+    // Returns the id of every bucket in keys, creating the ones that do not exist yet
+    private Map<RollupKey, Long> createMissingBuckets(Set<RollupKey> keys) {
+        Map<RollupKey, Long> bucketIds = findBucketIds(keys);
+        // Inserted in key order, so two writers creating overlapping buckets cannot deadlock on the unique index
+        Set<RollupKey> missing = new TreeSet<>(RollupKey.ORDER);
+        for (RollupKey key : keys) {
+            if (!bucketIds.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) {
+            return bucketIds;
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                marketPriceRollupRepository.saveAllAndFlush(missing.stream().map(RollupKey::newRollup).toList()));
+        } catch (DataIntegrityViolationException e) {
+            // Another writer created some of them first; add the rest one at a time
+            for (RollupKey key : missing) {
+                try {
+                    transactionTemplate.executeWithoutResult(status ->
+                        marketPriceRollupRepository.saveAndFlush(key.newRollup()));
+                } catch (DataIntegrityViolationException alreadyCreated) {
+                    // Exists now, which is all that is needed
+                }
+            }
+        }
+        return findBucketIds(keys);
+    }
+
+    private Map<RollupKey, Long> findBucketIds(Set<RollupKey> keys) {
+        Map<RollupKey, Long> bucketIds = new HashMap<>();
+        for (MarketPriceRollup rollup : marketPriceRollupRepository.findBuckets(productKeys(keys), bucketStarts(keys))) {
+            RollupKey key = RollupKey.of(rollup);
+            if (keys.contains(key)) {
+                bucketIds.put(key, rollup.getId());
+            }
+        }
+        return bucketIds;
+    }
+
+    private List<MarketPrice> saveWithRollups(List<MarketPrice> prices, Map<RollupKey, Long> bucketIds) {
+        List<MarketPrice> saved = marketPriceRepository.saveAll(prices);
+        applyToRollups(saved, bucketIds);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                marketPriceSeriesStore.appendAll(saved);
+                priceAlertService.onPricesRecorded(saved);
+                marketStreamService.publishPrices(saved);
+                marketReferencePrices.onPricesRecorded(saved);
+            }
+        });
+
+        return saved;
+    }
+
+    /**
+     * Folds prices that are already stored, but were never applied to the
+     * rollups, into them. Retention uses it for rows inserted behind this
+     * service's back, before deleting them.
+     */
+    public void foldIntoRollups(List<MarketPrice> prices) {
+        Set<RollupKey> keys = new HashSet<>();
+        for (MarketPrice price : prices) {
+            keys.addAll(rollupKeys(price));
+        }
+        Map<RollupKey, Long> bucketIds = createMissingBuckets(keys);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> applyToRollups(prices, bucketIds));
+    }
+
+    private void applyToRollups(List<MarketPrice> prices, Map<RollupKey, Long> bucketIds) {
+        Map<RollupKey, MarketPriceRollup> rollups = new HashMap<>();
+        for (MarketPriceRollup rollup : marketPriceRollupRepository.lockByIds(new TreeSet<>(bucketIds.values()))) {
+            rollups.put(RollupKey.of(rollup), rollup);
+        }
+
+        for (MarketPrice price : prices) {
+            for (RollupKey key : rollupKeys(price)) {
+                MarketPriceRollup rollup = rollups.get(key);
+                if (rollup == null) {
+                    // Removed since it was created, e.g. by retention; recreate it in this transaction
+                    rollup = marketPriceRollupRepository.save(key.newRollup());
+                    rollups.put(key, rollup);
+                }
+                rollup.apply(price);
+            }
+        }
+        // The locked rows are managed, so dirty checking writes them back at commit
+    }
+
+    // Every bucket a price belongs to: each granularity, for its region and for all regions
+    private List<RollupKey> rollupKeys(MarketPrice price) {
+        String regionKey = MarketPrice.keyOf(price.getRegion());
+        List<RollupKey> keys = new ArrayList<>();
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            LocalDate bucketStart = granularity.bucketStart(price.getRecordDate());
+            keys.add(new RollupKey(price.getProductKey(), MarketPriceRollup.ALL_REGIONS, granularity, bucketStart));
+            if (regionKey != null && !regionKey.isEmpty()) {
+                keys.add(new RollupKey(price.getProductKey(), regionKey, granularity, bucketStart));
+            }
+        }
+        return keys;
+    }
+
+    private Set<String> productKeys(Set<RollupKey> keys) {
+        Set<String> productKeys = new HashSet<>();
+        for (RollupKey key : keys) {
+            productKeys.add(key.productKey());
+        }
+        return productKeys;
+    }
+
+    private Set<LocalDate> bucketStarts(Set<RollupKey> keys) {
+        Set<LocalDate> bucketStarts = new HashSet<>();
+        for (RollupKey key : keys) {
+            bucketStarts.add(key.bucketStart());
+        }
+        return bucketStarts;
+    }
+
+    // Raw prices recorded before this are deleted by retention; only their rollups remain
+    public LocalDateTime getRawRetentionCutoff() {
+        return LocalDate.now().minusDays(rawRetentionDays).atStartOfDay();
+    }
+
+    /**
+     * Mean of the average price of every tick recorded over the last
+     * {@code days} days. The part of the period past raw retention comes from
+     * the daily rollups, counting whole days, and the rest from the series
+     * store when it covers it, otherwise from the table.
+     */
+    public Optional<BigDecimal> getAveragePrice(String productName, int days) {
+        LocalDateTime since = LocalDateTime.now().minusDays(days);
+        LocalDateTime rawFrom = getRawRetentionCutoff();
+        String productKey = MarketPrice.keyOf(productName);
+        if (!since.isBefore(rawFrom)) {
+            return marketPriceSeriesStore.covers(since)
+                ? marketPriceSeriesStore.average(productName, null, since)
+                : Optional.ofNullable(marketPriceRepository.getPriceTotalsForProduct(productKey, since).average(2));
+        }
+
+        PriceTotals totals = marketPriceRepository.getRollupTotalsForProduct(productKey, MarketPriceRollup.ALL_REGIONS,
+            since.toLocalDate(), rawFrom.toLocalDate());
+        totals = totals.plus(marketPriceSeriesStore.covers(rawFrom)
+            ? marketPriceSeriesStore.totals(productName, null, rawFrom)
+            : marketPriceRepository.getPriceTotalsForProduct(productKey, rawFrom));
+        return Optional.ofNullable(totals.average(2));
+    }
+
+    // Buckets of the last `days` days, oldest first; region null means all regions
+    public List<MarketPriceRollup> getRollups(String productName, String region, RollupGranularity granularity, int days) {
+        LocalDateTime now = LocalDateTime.now();
+        return marketPriceRollupRepository.findBuckets(MarketPrice.keyOf(productName), regionKeyOf(region),
+            granularity, granularity.bucketStart(now.minusDays(days)), now.toLocalDate());
+    }
+
+    /**
+     * Open, high, low, close, averages and volume over the last {@code days}
+     * days, combined from daily rollups.
+     */
+    public Map<String, Object> getSummary(String productName, String region, int days) {
+        List<MarketPriceRollup> buckets = getRollups(productName, region, RollupGranularity.DAILY, days);
+
+        BigDecimal high = null;
+        BigDecimal low = null;
+        BigDecimal priceSum = BigDecimal.ZERO;
+        BigDecimal weightedPriceSum = BigDecimal.ZERO;
+        long tickCount = 0;
+        long totalQuantityTraded = 0;
+        for (MarketPriceRollup bucket : buckets) {
+            if (high == null || bucket.getHighPrice().compareTo(high) > 0) {
+                high = bucket.getHighPrice();
+            }
+            if (low == null || bucket.getLowPrice().compareTo(low) < 0) {
+                low = bucket.getLowPrice();
+            }
+            priceSum = priceSum.add(bucket.getPriceSum());
+            weightedPriceSum = weightedPriceSum.add(bucket.getWeightedPriceSum());
+            tickCount += bucket.getTickCount();
+            totalQuantityTraded += bucket.getTotalQuantityTraded();
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("productName", productName);
+        summary.put("region", region);
+        summary.put("period", days + " days");
+        summary.put("buckets", buckets.size());
+        summary.put("openPrice", buckets.isEmpty() ? null : buckets.get(0).getOpenPrice());
+        summary.put("highPrice", high);
+        summary.put("lowPrice", low);
+        summary.put("closePrice", buckets.isEmpty() ? null : buckets.get(buckets.size() - 1).getClosePrice());
+        summary.put("averagePrice", tickCount == 0 ? null
+            : priceSum.divide(BigDecimal.valueOf(tickCount), 2, RoundingMode.HALF_UP));
+        summary.put("volumeWeightedAverage", totalQuantityTraded == 0 ? summary.get("averagePrice")
+            : weightedPriceSum.divide(BigDecimal.valueOf(totalQuantityTraded), 2, RoundingMode.HALF_UP));
+        summary.put("totalQuantityTraded", totalQuantityTraded);
+        summary.put("tickCount", tickCount);
+        return summary;
+    }
+
+    /**
+     * Price quantiles over the last {@code days} days, from the daily sketches
+     * merged on the fly. Each is within PriceSketch.RELATIVE_ACCURACY of a
+     * tick price at that rank. Keys are "p" plus the percentile, e.g. "p50".
+     */
+    public Map<String, Object> getQuantiles(String productName, String region, int days, List<Double> percentiles) {
+        PriceSketch merged = new PriceSketch();
+        for (MarketPriceRollup bucket : getRollups(productName, region, RollupGranularity.DAILY, days)) {
+            merged.merge(bucket.getPriceSketch());
+        }
+
+        Map<String, BigDecimal> quantiles = new LinkedHashMap<>();
+        for (Double percentile : percentiles) {
+            double value = merged.quantile(percentile / 100);
+            quantiles.put("p" + BigDecimal.valueOf(percentile).stripTrailingZeros().toPlainString(),
+                Double.isNaN(value) ? null : BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("productName", productName);
+        result.put("region", region);
+        result.put("period", days + " days");
+        result.put("tickCount", merged.getCount());
+        result.put("relativeAccuracy", PriceSketch.RELATIVE_ACCURACY);
+        result.put("quantiles", quantiles);
+        return result;
+    }
+
+    private String regionKeyOf(String region) {
+        String regionKey = MarketPrice.keyOf(region);
+        return regionKey == null || regionKey.isEmpty() ? MarketPriceRollup.ALL_REGIONS : regionKey;
+    }
+
+    private record RollupKey(String productKey, String regionKey, RollupGranularity granularity, LocalDate bucketStart) {
+        static final Comparator<RollupKey> ORDER = Comparator.comparing(RollupKey::productKey)
+            .thenComparing(RollupKey::regionKey)
+            .thenComparing(RollupKey::granularity)
+            .thenComparing(RollupKey::bucketStart);
+
+        static RollupKey of(MarketPriceRollup rollup) {
+            return new RollupKey(rollup.getProductKey(), rollup.getRegionKey(),
+                rollup.getGranularity(), rollup.getBucketStart());
+        }
+
+        MarketPriceRollup newRollup() {
+            return new MarketPriceRollup(productKey, regionKey, granularity, bucketStart);
+        }
+    }
+}
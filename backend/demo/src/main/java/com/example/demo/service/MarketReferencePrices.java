@@ -0,0 +1,207 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductView;
+import com.example.demo.model.MarketPrice;
+import com.example.demo.model.MarketPriceRollup;
+import com.example.demo.repository.MarketPriceRepository;
+import com.example.demo.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The latest market price of every product in every region, kept in memory
+ * so product listings can be compared with the market without a query per
+ * row. A listing is compared with the price in its location, or with the
+ * latest price anywhere when its location has none. Locations match regions
+ * by {@link MarketPrice#keyOf}.
+ *
+ * Each product row also stores its deviation from that price, so listings can
+ * be sorted by it in the database. Products whose market price changed are
+ * marked dirty and their rows are updated in bulk every
+ * {@code app.marketDeviationRefreshMs}, so the stored value may briefly lag
+ * the one shown.
+ */
+@Service
+public class MarketReferencePrices {
+
+    @Autowired
+    MarketPriceRepository marketPriceRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    // product key -> region key -> latest price; ALL_REGIONS holds the latest of any region
+    private final ConcurrentMap<String, ConcurrentMap<String, Reference>> prices = new ConcurrentHashMap<>();
+
+    // Products whose stored deviations are out of date
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder annotated = new LongAdder();
+    private final LongAdder rowsUpdated = new LongAdder();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (MarketPrice price : marketPriceRepository.findLatestPricePerProductAndRegion()) {
+            record(price);
+        }
+        dirty.addAll(prices.keySet());
+    }
+
+    // Called after the prices are committed
+    public void onPricesRecorded(List<MarketPrice> recorded) {
+        for (MarketPrice price : recorded) {
+            if (record(price)) {
+                dirty.add(price.getProductKey());
+            }
+        }
+    }
+
+    // True when the price is the newest seen for its region or overall
+    private boolean record(MarketPrice price) {
+        if (price.getProductKey() == null || price.getAveragePrice() == null || price.getAveragePrice().signum() <= 0) {
+            return false;
+        }
+        Reference reference = new Reference(price.getAveragePrice(), price.getRecordDate());
+        ConcurrentMap<String, Reference> regions = prices.computeIfAbsent(price.getProductKey(), key -> new ConcurrentHashMap<>());
+        boolean changed = false;
+        String regionKey = MarketPrice.keyOf(price.getRegion());
+        if (regionKey != null && !regionKey.isEmpty()) {
+            changed = replaceIfNewer(regions, regionKey, reference);
+        }
+        return replaceIfNewer(regions, MarketPriceRollup.ALL_REGIONS, reference) | changed;
+    }
+
+    private static boolean replaceIfNewer(ConcurrentMap<String, Reference> regions, String regionKey, Reference reference) {
+        boolean[] replaced = new boolean[1];
+        regions.compute(regionKey, (key, current) -> {
+            if (current != null && current.recordDate().isAfter(reference.recordDate())) {
+                return current;
+            }
+            replaced[0] = true;
+            return reference;
+        });
+        return replaced[0];
+    }
+
+    // The market price a listing of this product in this location is compared with, or null
+    public BigDecimal marketPriceFor(String productName, String location) {
+        Map<String, Reference> regions = prices.get(MarketPrice.keyOf(productName));
+        if (regions == null) {
+            return null;
+        }
+        Reference reference = location == null ? null : regions.get(MarketPrice.keyOf(location));
+        if (reference == null) {
+            reference = regions.get(MarketPriceRollup.ALL_REGIONS);
+        }
+        return reference == null ? null : reference.price();
+    }
+
+    // Percent above (positive) or below the market price, or null without one
+    public BigDecimal deviationFor(String productName, String location, BigDecimal pricePerUnit) {
+        return deviation(pricePerUnit, marketPriceFor(productName, location));
+    }
+
+    private static BigDecimal deviation(BigDecimal pricePerUnit, BigDecimal marketPrice) {
+        if (pricePerUnit == null || marketPrice == null) {
+            return null;
+        }
+        return pricePerUnit.subtract(marketPrice).multiply(BigDecimal.valueOf(100))
+            .divide(marketPrice, 2, RoundingMode.HALF_UP);
+    }
+
+    public ProductView annotate(ProductView view) {
+        annotated.increment();
+        BigDecimal marketPrice = marketPriceFor(view.getName(), view.getLocation());
+        return view.withMarketPrice(marketPrice, deviation(view.getPricePerUnit(), marketPrice));
+    }
+
+    public List<ProductView> annotateAll(List<ProductView> views) {
+        List<ProductView> annotatedViews = new ArrayList<>(views.size());
+        for (ProductView view : views) {
+            annotatedViews.add(annotate(view));
+        }
+        return annotatedViews;
+    }
+
+    /**
+     * Rewrites the stored deviation of every listing of the dirty products:
+     * one bulk UPDATE per priced region, and one for all other locations.
+     */
+    @Scheduled(fixedDelayString = "${app.marketDeviationRefreshMs:10000}", initialDelayString = "${app.marketDeviationRefreshMs:10000}")
+    public void refreshDeviations() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<String> productKeys = new ArrayList<>(dirty);
+        dirty.removeAll(productKeys);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (String productKey : productKeys) {
+            Map<String, Reference> regions = prices.get(productKey);
+            if (regions == null) {
+                continue;
+            }
+            try {
+                Integer updated = transactionTemplate.execute(status -> updateDeviations(productKey, Map.copyOf(regions)));
+                rowsUpdated.add(updated == null ? 0 : updated);
+            } catch (RuntimeException e) {
+                dirty.add(productKey);
+                System.err.println("Could not update market deviations of " + productKey + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private int updateDeviations(String productKey, Map<String, Reference> regions) {
+        int updated = 0;
+        Set<String> pricedRegions = new HashSet<>(regions.keySet());
+        for (Map.Entry<String, Reference> region : regions.entrySet()) {
+            if (!MarketPriceRollup.ALL_REGIONS.equals(region.getKey())) {
+                updated += productRepository.updateMarketDeviation(productKey, region.getKey(), region.getValue().price());
+            }
+        }
+        Reference anywhere = regions.get(MarketPriceRollup.ALL_REGIONS);
+        if (anywhere != null) {
+            // pricedRegions holds ALL_REGIONS at least, so it is never empty
+            updated += productRepository.updateMarketDeviationElsewhere(productKey, pricedRegions, anywhere.price());
+        }
+        return updated;
+    }
+
+    public Map<String, Object> getStats() {
+        int regions = 0;
+        for (Map<String, Reference> productRegions : prices.values()) {
+            regions += productRegions.size();
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("products", prices.size());
+        stats.put("prices", regions);
+        stats.put("dirtyProducts", dirty.size());
+        stats.put("listingsAnnotated", annotated.sum());
+        stats.put("rowsUpdated", rowsUpdated.sum());
+        return stats;
+    }
+
+    private record Reference(BigDecimal price, LocalDateTime recordDate) {}
+}
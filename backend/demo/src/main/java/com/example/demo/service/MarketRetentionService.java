@@ -0,0 +1,203 @@
+package com.example.demo.service;
+
+import com.example.demo.model.MarketPrice;
+import com.example.demo.model.MarketPriceRollup;
+import com.example.demo.model.RollupGranularity;
+import com.example.demo.repository.MarketPriceRepository;
+import com.example.demo.repository.MarketPriceRollupRepository;
+import com.example.demo.series.MarketPriceSeriesStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps market price storage bounded. Raw ticks are kept for
+ * {@code app.marketRawRetentionDays}. Daily and weekly rollups are kept for
+ * {@code app.marketDailyRollupRetentionDays}, and monthly rollups for
+ * {@code app.marketMonthlyRollupRetentionDays} (0 keeps them forever), so
+ * older periods remain queryable at a coarser grain. Rows are deleted oldest
+ * first, {@code chunkSize} at a time, each chunk in a short transaction of
+ * its own, with a pause in between, so the job never holds many locks on the
+ * tables prices are written to.
+ */
+@Service
+public class MarketRetentionService {
+
+    @Value("${app.marketDailyRollupRetentionDays:730}")
+    private int dailyRollupRetentionDays;
+
+    @Value("${app.marketMonthlyRollupRetentionDays:0}")
+    private int monthlyRollupRetentionDays;
+
+    @Value("${app.marketRetentionChunkSize:1000}")
+    private int chunkSize;
+
+    @Value("${app.marketRetentionPauseMs:100}")
+    private long pauseMs;
+
+    // Caps one run, so a large backlog is worked off over several runs
+    @Value("${app.marketRetentionMaxChunks:500}")
+    private int maxChunksPerRun;
+
+    @Autowired
+    MarketPriceRepository marketPriceRepository;
+
+    @Autowired
+    MarketPriceRollupRepository marketPriceRollupRepository;
+
+    @Autowired
+    MarketPriceService marketPriceService;
+
+    @Autowired
+    MarketPriceSeriesStore marketPriceSeriesStore;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder pricesDeleted = new LongAdder();
+    private final LongAdder pricesDownsampled = new LongAdder();
+    private final LongAdder rollupsDeleted = new LongAdder();
+    private volatile LocalDateTime lastRunAt;
+    private volatile long lastRunMs;
+
+    @Scheduled(fixedDelayString = "${app.marketRetentionMs:3600000}", initialDelayString = "${app.marketRetentionInitialDelayMs:60000}")
+    public synchronized void run() {
+        long started = System.currentTimeMillis();
+        try {
+            LocalDateTime rawCutoff = marketPriceService.getRawRetentionCutoff();
+            int chunks = purgePrices(rawCutoff, maxChunksPerRun);
+            marketPriceSeriesStore.evictBefore(rawCutoff);
+
+            // Rollups never expire ahead of the finer data they summarize
+            LocalDateTime dailyCutoff = min(LocalDateTime.now().minusDays(dailyRollupRetentionDays), rawCutoff);
+            chunks += purgeRollups(RollupGranularity.DAILY, dailyCutoff, maxChunksPerRun - chunks);
+            chunks += purgeRollups(RollupGranularity.WEEKLY, dailyCutoff, maxChunksPerRun - chunks);
+            if (monthlyRollupRetentionDays > 0) {
+                LocalDateTime monthlyCutoff = min(LocalDateTime.now().minusDays(monthlyRollupRetentionDays), dailyCutoff);
+                purgeRollups(RollupGranularity.MONTHLY, monthlyCutoff, maxChunksPerRun - chunks);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            System.err.println("Market price retention failed: " + e.getMessage());
+        } finally {
+            runs.increment();
+            lastRunAt = LocalDateTime.now();
+            lastRunMs = System.currentTimeMillis() - started;
+        }
+    }
+
+    /**
+     * Deletes prices recorded before {@code cutoff}, oldest first. A chunk's
+     * product days without a daily rollup were stored behind
+     * MarketPriceService's back, so all of that day's prices are folded into
+     * the rollups first. Returns the number of chunks deleted.
+     */
+    private int purgePrices(LocalDateTime cutoff, int maxChunks) throws InterruptedException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int chunks = 0;
+        while (chunks < maxChunks) {
+            List<MarketPrice> chunk = marketPriceRepository.findRecordedBefore(cutoff, Limit.of(chunkSize));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            foldUnrolledDays(chunk);
+
+            List<Long> ids = chunk.stream().map(MarketPrice::getId).toList();
+            Integer deleted = transactionTemplate.execute(status -> marketPriceRepository.deleteByIds(ids));
+            pricesDeleted.add(deleted == null ? 0 : deleted);
+            chunks++;
+            Thread.sleep(pauseMs);
+        }
+        return chunks;
+    }
+
+    private void foldUnrolledDays(List<MarketPrice> chunk) {
+        Set<ProductDay> days = new HashSet<>();
+        for (MarketPrice price : chunk) {
+            if (price.getProductKey() != null) {
+                days.add(new ProductDay(price.getProductKey(), price.getRecordDate().toLocalDate()));
+            }
+        }
+        if (days.isEmpty()) {
+            return;
+        }
+
+        Set<String> productKeys = new HashSet<>();
+        Set<LocalDate> dates = new HashSet<>();
+        for (ProductDay day : days) {
+            productKeys.add(day.productKey());
+            dates.add(day.date());
+        }
+        for (MarketPriceRollup rollup : marketPriceRollupRepository.findBuckets(productKeys, dates)) {
+            if (rollup.getGranularity() == RollupGranularity.DAILY
+                    && MarketPriceRollup.ALL_REGIONS.equals(rollup.getRegionKey())
+                    && rollup.getTickCount() > 0) {
+                days.remove(new ProductDay(rollup.getProductKey(), rollup.getBucketStart()));
+            }
+        }
+
+        // Later chunks of the same day find its rollup and are not folded again
+        for (ProductDay day : days) {
+            List<MarketPrice> prices = marketPriceRepository.findRecordedBetween(day.productKey(),
+                day.date().atStartOfDay(), day.date().plusDays(1).atStartOfDay());
+            if (!prices.isEmpty()) {
+                marketPriceService.foldIntoRollups(prices);
+                pricesDownsampled.add(prices.size());
+            }
+        }
+    }
+
+    // Deletes the buckets that ended by the cutoff; returns the number of chunks deleted
+    private int purgeRollups(RollupGranularity granularity, LocalDateTime cutoff, int maxChunks) throws InterruptedException {
+        LocalDate before = granularity.bucketStart(cutoff);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int chunks = 0;
+        while (chunks < maxChunks) {
+            List<Long> ids = marketPriceRollupRepository.findIdsBefore(granularity, before, Limit.of(chunkSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            Integer deleted = transactionTemplate.execute(status -> marketPriceRollupRepository.deleteByIds(ids));
+            rollupsDeleted.add(deleted == null ? 0 : deleted);
+            chunks++;
+            Thread.sleep(pauseMs);
+        }
+        return chunks;
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rawRetentionCutoff", marketPriceService.getRawRetentionCutoff());
+        stats.put("dailyRollupRetentionDays", dailyRollupRetentionDays);
+        stats.put("monthlyRollupRetentionDays", monthlyRollupRetentionDays);
+        stats.put("chunkSize", chunkSize);
+        stats.put("runs", runs.sum());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastRunMs", lastRunMs);
+        stats.put("pricesDeleted", pricesDeleted.sum());
+        stats.put("pricesDownsampled", pricesDownsampled.sum());
+        stats.put("rollupsDeleted", rollupsDeleted.sum());
+        return stats;
+    }
+
+    private record ProductDay(String productKey, LocalDate date) {}
+}
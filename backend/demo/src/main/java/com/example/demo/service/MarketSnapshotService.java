@@ -0,0 +1,130 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Precomputed /api/market/trends and /dashboard-stats responses. A scheduled
+ * refresh builds both payloads and swaps them in as one snapshot, so a
+ * request only reads the current snapshot, however many arrive. Each payload
+ * carries the {@code asOf} time it was computed. Refreshes are single-flight:
+ * a caller that finds one running waits for it rather than starting another.
+ */
+@Service
+public class MarketSnapshotService {
+
+    @Value("${app.marketSnapshotRefreshMs:5000}")
+    private long refreshMs;
+
+    @Autowired
+    MarketStatsService marketStatsService;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<Snapshot>> inFlight = new AtomicReference<>();
+
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder joinedRefreshes = new LongAdder();
+    private volatile long lastRefreshNanos;
+
+    public record Snapshot(Map<String, Object> trends, Map<String, Object> dashboardStats, LocalDateTime asOf) {}
+
+    // The last snapshot, computed on the spot only before the first refresh has finished
+    public Snapshot getSnapshot() {
+        Snapshot snapshot = current.get();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        try {
+            return refresh().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.marketSnapshotRefreshMs:5000}", initialDelayString = "${app.marketSnapshotRefreshMs:5000}")
+    public void scheduledRefresh() {
+        try {
+            refresh().join();
+        } catch (CompletionException e) {
+            System.err.println("Could not refresh market snapshot: " + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Starts a refresh, or joins the one already running. On failure the
+     * previous snapshot stays in place.
+     */
+    public CompletableFuture<Snapshot> refresh() {
+        CompletableFuture<Snapshot> mine = new CompletableFuture<>();
+        CompletableFuture<Snapshot> running = inFlight.compareAndExchange(null, mine);
+        if (running != null) {
+            joinedRefreshes.increment();
+            return running;
+        }
+
+        long start = System.nanoTime();
+        try {
+            Snapshot snapshot = compute();
+            current.set(snapshot);
+            refreshes.increment();
+            mine.complete(snapshot);
+        } catch (RuntimeException e) {
+            refreshFailures.increment();
+            mine.completeExceptionally(e);
+        } finally {
+            lastRefreshNanos = System.nanoTime() - start;
+            inFlight.set(null);
+        }
+        return mine;
+    }
+
+    private Snapshot compute() {
+        LocalDateTime asOf = LocalDateTime.now();
+
+        Map<String, Object> trends = new LinkedHashMap<>();
+        // Latest prices of every category, from one windowed query
+        trends.put("categoryPrices", marketStatsService.getLatestPricesByCategory(5));
+        // Total products by category, from the maintained counters
+        trends.put("productCounts", marketStatsService.getProductCounts());
+        trends.put("asOf", asOf);
+
+        Map<String, Object> dashboardStats = new LinkedHashMap<>();
+        dashboardStats.put("totalProducts", marketStatsService.getTotalProducts());
+        dashboardStats.put("productsByCategory", marketStatsService.getProductCounts());
+        // Recent market activity (last 7 days)
+        dashboardStats.put("recentMarketActivity", marketStatsService.countPricesRecordedSince(asOf.minusDays(7)));
+        dashboardStats.put("asOf", asOf);
+
+        return new Snapshot(Collections.unmodifiableMap(trends), Collections.unmodifiableMap(dashboardStats), asOf);
+    }
+
+    public Map<String, Object> getStats() {
+        Snapshot snapshot = current.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("refreshIntervalMs", refreshMs);
+        stats.put("asOf", snapshot == null ? null : snapshot.asOf());
+        stats.put("ageMs", snapshot == null ? null : Duration.between(snapshot.asOf(), LocalDateTime.now()).toMillis());
+        stats.put("refreshes", refreshes.sum());
+        stats.put("refreshFailures", refreshFailures.sum());
+        stats.put("joinedRefreshes", joinedRefreshes.sum());
+        stats.put("lastRefreshMs", lastRefreshNanos / 1e6);
+        return stats;
+    }
+}
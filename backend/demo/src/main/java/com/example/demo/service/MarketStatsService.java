@@ -0,0 +1,106 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CategoryCount;
+import com.example.demo.model.MarketPrice;
+import com.example.demo.model.ProductCategory;
+import com.example.demo.repository.MarketPriceRepository;
+import com.example.demo.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Product counts per category, kept in memory so dashboards do not scan the
+ * catalog. Every code path that creates or deletes a product, or changes its
+ * category, reports it here. The counters are periodically reconciled with a
+ * single GROUP BY query, which also corrects any drift from a write that
+ * raced with the previous reconciliation. Every change of a count is pushed
+ * to {@link MarketStreamService} subscribers.
+ */
+@Service
+public class MarketStatsService {
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    MarketPriceRepository marketPriceRepository;
+
+    @Autowired
+    MarketStreamService marketStreamService;
+
+    private final Map<ProductCategory, AtomicLong> productCounts = new EnumMap<>(ProductCategory.class);
+
+    public MarketStatsService() {
+        for (ProductCategory category : ProductCategory.values()) {
+            productCounts.put(category, new AtomicLong());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.marketStatsReconcileMs:300000}", initialDelayString = "${app.marketStatsReconcileMs:300000}")
+    public void reconcile() {
+        Map<ProductCategory, Long> counted = new EnumMap<>(ProductCategory.class);
+        for (CategoryCount row : productRepository.countByCategory()) {
+            counted.put(row.getCategory(), row.getCount());
+        }
+        for (ProductCategory category : ProductCategory.values()) {
+            long count = counted.getOrDefault(category, 0L);
+            if (productCounts.get(category).getAndSet(count) != count) {
+                marketStreamService.publishCategoryCount(category, count);
+            }
+        }
+    }
+
+    public void productAdded(ProductCategory category) {
+        marketStreamService.publishCategoryCount(category, productCounts.get(category).incrementAndGet());
+    }
+
+    public void productRemoved(ProductCategory category) {
+        marketStreamService.publishCategoryCount(category, productCounts.get(category).decrementAndGet());
+    }
+
+    public void productRecategorized(ProductCategory from, ProductCategory to) {
+        if (from != to) {
+            productRemoved(from);
+            productAdded(to);
+        }
+    }
+
+    // Every category is present, with zero when it has no products
+    public Map<ProductCategory, Long> getProductCounts() {
+        Map<ProductCategory, Long> counts = new EnumMap<>(ProductCategory.class);
+        productCounts.forEach((category, count) -> counts.put(category, count.get()));
+        return counts;
+    }
+
+    public long getTotalProducts() {
+        long total = 0;
+        for (AtomicLong count : productCounts.values()) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    // Categories without any price are left out
+    public Map<ProductCategory, List<MarketPrice>> getLatestPricesByCategory(int perCategory) {
+        Map<ProductCategory, List<MarketPrice>> latest = new EnumMap<>(ProductCategory.class);
+        for (MarketPrice price : marketPriceRepository.findLatestPricesPerCategory(perCategory)) {
+            latest.computeIfAbsent(price.getCategory(), category -> new ArrayList<>()).add(price);
+        }
+        return latest;
+    }
+
+    public long countPricesRecordedSince(LocalDateTime since) {
+        return marketPriceRepository.countByRecordDateBetween(since, LocalDateTime.now());
+    }
+}
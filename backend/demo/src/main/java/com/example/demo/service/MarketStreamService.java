@@ -0,0 +1,368 @@
+package com.example.demo.service;
+
+import com.example.demo.model.MarketPrice;
+import com.example.demo.model.MarketPriceRollup;
+import com.example.demo.model.ProductCategory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes committed market price ticks and category count changes to
+ * server-sent event subscribers, so dashboards stop polling for them.
+ * Events are conflated by key, such as one product in one region, at every
+ * stage. Publishers replace the key's entry in the inbox and never wait. A
+ * single dispatcher thread encodes each event once and routes the frame to
+ * the subscribers of its topics. Every subscriber keeps at most one pending
+ * frame per key, and a small writer pool sends them. A slow consumer
+ * therefore skips straight to the latest value of each key, and holds up
+ * neither the dispatcher nor other subscribers.
+ */
+@Service
+public class MarketStreamService {
+
+    public static final String PRICE_EVENT = "price";
+    public static final String CATEGORY_STATS_EVENT = "category-stats";
+
+    @Value("${app.marketStreamMaxSubscribers:10000}")
+    private int maxSubscribers;
+
+    @Value("${app.marketStreamWriterThreads:4}")
+    private int writerThreads;
+
+    @Value("${app.marketStreamTimeoutMs:1800000}")
+    private long timeoutMs;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    // Latest unrouted event per key, and the keys in the order they became pending
+    private final Map<String, Published> inbox = new ConcurrentHashMap<>();
+    private final BlockingQueue<String> inboxKeys = new LinkedBlockingQueue<>();
+
+    private ExecutorService writers;
+    private Thread dispatcher;
+
+    // topic -> subscribers of it; subscribers without topics receive everything
+    private final Map<String, Set<Subscriber>> topics = new ConcurrentHashMap<>();
+    private final Set<Subscriber> everything = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder inboxConflated = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+
+    @PostConstruct
+    void start() {
+        writers = Executors.newFixedThreadPool(writerThreads, daemonThreads("market-stream-writer-"));
+        dispatcher = daemonThreads("market-stream-dispatcher").newThread(this::dispatch);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        dispatcher.interrupt();
+        writers.shutdownNow();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger created = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix.endsWith("-") ? prefix + created.incrementAndGet() : prefix);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public static String productTopic(String productName) {
+        return "product:" + MarketPrice.keyOf(productName);
+    }
+
+    public static String categoryTopic(ProductCategory category) {
+        return "category:" + category.name();
+    }
+
+    /**
+     * Opens a stream of the given topics, or of everything when there are
+     * none, starting with {@code initial} category counts. Returns null when
+     * the subscriber limit is reached.
+     */
+    public SseEmitter subscribe(Collection<String> subscribedTopics, Map<ProductCategory, Long> initial) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            refused.increment();
+            return null;
+        }
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMs), List.copyOf(subscribedTopics));
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onTimeout(() -> unsubscribe(subscriber));
+        subscriber.emitter.onError(error -> unsubscribe(subscriber));
+
+        initial.forEach((category, count) -> {
+            if (subscriber.topics.isEmpty() || subscriber.topics.contains(categoryTopic(category))) {
+                offer(subscriber, encode(categoryStats(category, count)));
+            }
+        });
+        if (subscriber.topics.isEmpty()) {
+            everything.add(subscriber);
+        } else {
+            for (String topic : subscriber.topics) {
+                // Added inside compute, so an unsubscribe emptying the same topic cannot drop it
+                topics.compute(topic, (key, subscribers) -> {
+                    Set<Subscriber> added = subscribers == null ? ConcurrentHashMap.newKeySet() : subscribers;
+                    added.add(subscriber);
+                    return added;
+                });
+            }
+        }
+        return subscriber.emitter;
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        synchronized (subscriber) {
+            if (subscriber.closed) {
+                return;
+            }
+            subscriber.closed = true;
+            subscriber.pending.clear();
+        }
+        everything.remove(subscriber);
+        for (String topic : subscriber.topics) {
+            topics.computeIfPresent(topic, (key, subscribers) -> {
+                subscribers.remove(subscriber);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+        }
+        subscriberCount.decrementAndGet();
+        disconnected.increment();
+    }
+
+    // Called after the prices are committed
+    public void publishPrices(List<MarketPrice> prices) {
+        if (subscriberCount.get() == 0) {
+            return;
+        }
+        for (MarketPrice price : prices) {
+            String regionKey = price.getRegion() == null ? MarketPriceRollup.ALL_REGIONS : MarketPrice.keyOf(price.getRegion());
+            publish(new Published(PRICE_EVENT, PRICE_EVENT + ":" + price.getProductKey() + "|" + regionKey, price,
+                List.of("product:" + price.getProductKey(), categoryTopic(price.getCategory()))));
+        }
+    }
+
+    public void publishCategoryCount(ProductCategory category, long productCount) {
+        if (subscriberCount.get() == 0) {
+            return;
+        }
+        publish(categoryStats(category, productCount));
+    }
+
+    private static Published categoryStats(ProductCategory category, long productCount) {
+        return new Published(CATEGORY_STATS_EVENT, CATEGORY_STATS_EVENT + ":" + category.name(),
+            new CategoryStats(category, productCount), List.of(categoryTopic(category)));
+    }
+
+    // Replaces an event of the same key that the dispatcher has not picked up yet
+    private void publish(Published event) {
+        published.increment();
+        if (inbox.put(event.key(), event) == null) {
+            inboxKeys.add(event.key());
+        } else {
+            inboxConflated.increment();
+        }
+    }
+
+    // Keeps idle connections open through proxies, and finds clients that went away
+    @Scheduled(fixedDelayString = "${app.marketStreamHeartbeatMs:15000}", initialDelayString = "${app.marketStreamHeartbeatMs:15000}")
+    public void heartbeat() {
+        if (subscriberCount.get() > 0) {
+            publish(Published.HEARTBEAT);
+        }
+    }
+
+    private void dispatch() {
+        List<String> keys = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                keys.add(inboxKeys.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            inboxKeys.drainTo(keys);
+            for (String key : keys) {
+                // Removing the entry before routing it lets the next publish of the key queue it again
+                Published event = inbox.remove(key);
+                if (event == null) {
+                    continue;
+                }
+                try {
+                    route(event);
+                } catch (RuntimeException e) {
+                    System.err.println("Could not dispatch market stream event " + key + ": " + e.getMessage());
+                }
+            }
+            keys.clear();
+        }
+    }
+
+    private void route(Published event) {
+        Frame frame = encode(event);
+        if (event == Published.HEARTBEAT) {
+            for (Set<Subscriber> subscribers : topics.values()) {
+                offerAll(subscribers, frame);
+            }
+        } else {
+            for (String topic : event.topics()) {
+                Set<Subscriber> subscribers = topics.get(topic);
+                if (subscribers != null) {
+                    offerAll(subscribers, frame);
+                }
+            }
+        }
+        offerAll(everything, frame);
+    }
+
+    private void offerAll(Set<Subscriber> subscribers, Frame frame) {
+        for (Subscriber subscriber : subscribers) {
+            offer(subscriber, frame);
+        }
+    }
+
+    // Serialized once, then the same frame is written to every subscriber
+    private Frame encode(Published event) {
+        if (event == Published.HEARTBEAT) {
+            return new Frame(event.key(), SseEmitter.event().comment("heartbeat").build());
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(event.data());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        return new Frame(event.key(), SseEmitter.event()
+            .id(Long.toString(sequence.incrementAndGet()))
+            .name(event.name())
+            .data(json)
+            .build());
+    }
+
+    private void offer(Subscriber subscriber, Frame frame) {
+        synchronized (subscriber) {
+            if (subscriber.closed) {
+                return;
+            }
+            Frame previous = subscriber.pending.put(frame.key(), frame);
+            if (previous != null && previous != frame) {
+                conflated.increment();
+            }
+            if (subscriber.flushing) {
+                return;
+            }
+            subscriber.flushing = true;
+        }
+        schedule(subscriber);
+    }
+
+    private void schedule(Subscriber subscriber) {
+        try {
+            writers.execute(() -> flush(subscriber));
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    /**
+     * Sends what is pending, then hands the writer back before sending what
+     * arrived meanwhile, so one busy subscriber cannot hold a writer thread.
+     */
+    private void flush(Subscriber subscriber) {
+        Map<String, Frame> frames;
+        synchronized (subscriber) {
+            frames = subscriber.pending;
+            subscriber.pending = new LinkedHashMap<>();
+        }
+        try {
+            for (Frame frame : frames.values()) {
+                subscriber.emitter.send(frame.data());
+                delivered.increment();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The connection is gone; the emitter's callbacks unsubscribe it
+            unsubscribe(subscriber);
+            return;
+        }
+        synchronized (subscriber) {
+            if (subscriber.closed || subscriber.pending.isEmpty()) {
+                subscriber.flushing = false;
+                return;
+            }
+        }
+        schedule(subscriber);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("subscribers", subscriberCount.get());
+        stats.put("maxSubscribers", maxSubscribers);
+        stats.put("topics", topics.size());
+        stats.put("inboxDepth", inbox.size());
+        stats.put("published", published.sum());
+        stats.put("delivered", delivered.sum());
+        stats.put("conflatedInInbox", inboxConflated.sum());
+        stats.put("conflatedPerSubscriber", conflated.sum());
+        stats.put("disconnected", disconnected.sum());
+        stats.put("refused", refused.sum());
+        return stats;
+    }
+
+    public record CategoryStats(ProductCategory category, long productCount) {}
+
+    private record Published(String name, String key, Object data, List<String> topics) {
+        static final Published HEARTBEAT = new Published(null, "heartbeat", null, List.of());
+    }
+
+    private record Frame(String key, Set<ResponseBodyEmitter.DataWithMediaType> data) {}
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final List<String> topics;
+
+        // Latest frame per key, in first-arrival order; guarded by the subscriber
+        Map<String, Frame> pending = new LinkedHashMap<>();
+        boolean flushing;
+        boolean closed;
+
+        Subscriber(SseEmitter emitter, List<String> topics) {
+            this.emitter = emitter;
+            this.topics = topics;
+        }
+    }
+}
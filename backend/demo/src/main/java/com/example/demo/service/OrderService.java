@@ -0,0 +1,99 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderRequest;
+import com.example.demo.model.Order;
+import com.example.demo.model.OrderItem;
+import com.example.demo.model.Product;
+import com.example.demo.model.User;
+import com.example.demo.repository.OrderRepository;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.search.ProductSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class OrderService {
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    InventoryService inventoryService;
+
+    @Autowired
+    ProductCache productCache;
+
+    @Autowired
+    ProductSearchIndex productSearchIndex;
+
+    /**
+     * Reserves stock for every line and records the order in one transaction.
+     * Either the whole order is placed or nothing changes.
+     */
+    @Transactional
+    public Order placeOrder(User buyer, OrderRequest orderRequest) {
+        // Merge repeated lines for the same product so each row is decremented once
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderRequest.OrderItemRequest itemRequest : orderRequest.getItems()) {
+            quantities.merge(itemRequest.getProductId(), itemRequest.getQuantity(), Integer::sum);
+        }
+
+        // Snapshot taken before the reservation, only to explain a rejection
+        Map<Long, Product> snapshot = new HashMap<>();
+        for (Product product : productRepository.findAllById(quantities.keySet())) {
+            snapshot.put(product.getId(), product);
+        }
+
+        List<Long> soldOut = inventoryService.reserve(quantities, snapshot);
+
+        // Priced from the rows the reservation has locked, so a price change committed in between is not missed
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(quantities.keySet())) {
+            products.put(product.getId(), product);
+        }
+
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (OrderRequest.OrderItemRequest itemRequest : orderRequest.getItems()) {
+            Product product = products.get(itemRequest.getProductId());
+            totalAmount = totalAmount.add(product.getPricePerUnit().multiply(BigDecimal.valueOf(itemRequest.getQuantity())));
+        }
+
+        Order order = new Order(buyer, totalAmount, orderRequest.getDeliveryAddress());
+        order.setNotes(orderRequest.getNotes());
+        for (OrderRequest.OrderItemRequest itemRequest : orderRequest.getItems()) {
+            Product product = products.get(itemRequest.getProductId());
+            order.getOrderItems().add(new OrderItem(
+                order,
+                product,
+                itemRequest.getQuantity(),
+                product.getPricePerUnit()
+            ));
+        }
+        // Lines are cascaded from the order and go out as one JDBC batch at flush
+        Order savedOrder = orderRepository.save(order);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                productCache.evictAll(quantities.keySet());
+                for (Long productId : soldOut) {
+                    productSearchIndex.remove(productId);
+                }
+            }
+        });
+
+        return savedOrder;
+    }
+}
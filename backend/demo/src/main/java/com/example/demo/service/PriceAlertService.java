@@ -0,0 +1,371 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.PriceAlertRequest;
+import com.example.demo.model.AlertCondition;
+import com.example.demo.model.AlertNotification;
+import com.example.demo.model.MarketPrice;
+import com.example.demo.model.MarketPriceRollup;
+import com.example.demo.model.PriceAlert;
+import com.example.demo.model.User;
+import com.example.demo.repository.AlertNotificationRepository;
+import com.example.demo.repository.PriceAlertRepository;
+import com.example.demo.series.MarketPriceSeriesStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evaluates price alerts as prices are recorded, instead of clients polling
+ * for prices. Alerts live in a {@link PriceThresholdIndex} per product and
+ * region, and every committed batch of prices is run through the indexes of
+ * its products. Firings are stored as {@link AlertNotification}s, and clients
+ * waiting on their notification queue are answered as soon as one arrives.
+ *
+ * The indexes move on as soon as a price is evaluated, so a write that fails
+ * is kept and retried, in order, until the database takes it; the stored
+ * state then catches up with the indexes and no firing is lost. At most
+ * {@code maxPendingWrites} are kept, oldest dropped first.
+ */
+@Service
+public class PriceAlertService {
+
+    @Value("${app.priceAlertMaxPerUser:100}")
+    private int maxPerUser;
+
+    @Value("${app.priceAlertNotificationPageSize:100}")
+    private int notificationPageSize;
+
+    @Value("${app.priceAlertMaxPendingWrites:1000}")
+    private int maxPendingWrites;
+
+    @Autowired
+    PriceAlertRepository priceAlertRepository;
+
+    @Autowired
+    AlertNotificationRepository alertNotificationRepository;
+
+    @Autowired
+    MarketPriceSeriesStore marketPriceSeriesStore;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    // product key -> region key -> index; ALL_REGIONS holds alerts on every region. Guarded by itself
+    private final Map<String, Map<String, PriceThresholdIndex>> indexes = new HashMap<>();
+
+    // The indexed instance of every alert, so a delete reaches the object the index holds
+    private final Map<Long, PriceAlert> alertsById = new HashMap<>();
+
+    // Evaluated state changes and notifications not stored yet, oldest first; guarded by indexes
+    private final Deque<PendingWrite> pendingWrites = new ArrayDeque<>();
+
+    // user id -> requests waiting for that user's next notification
+    private final ConcurrentMap<Long, Set<NotificationWaiter>> waiters = new ConcurrentHashMap<>();
+
+    private final LongAdder pricesEvaluated = new LongAdder();
+    private final LongAdder alertsFired = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+    private final LongAdder notificationsDropped = new LongAdder();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<PriceAlert> alerts = priceAlertRepository.findAll();
+        synchronized (indexes) {
+            indexes.clear();
+            alertsById.clear();
+            for (PriceAlert alert : alerts) {
+                index(alert);
+            }
+        }
+    }
+
+    /**
+     * Registers an alert for the user. A PERCENT_MOVE alert measures from the
+     * latest known price, or from the next one recorded. Throws
+     * IllegalArgumentException when the user already has the maximum number.
+     */
+    public PriceAlert create(User user, PriceAlertRequest request) {
+        if (priceAlertRepository.countByUserId(user.getId()) >= maxPerUser) {
+            throw new IllegalArgumentException("A user can have at most " + maxPerUser + " price alerts");
+        }
+        String region = request.getRegion() == null || request.getRegion().isBlank() ? null : request.getRegion().trim();
+        PriceAlert alert = new PriceAlert(user, request.getProductName().trim(), region,
+            request.getCondition(), request.getThreshold());
+        if (alert.getCondition() == AlertCondition.PERCENT_MOVE
+                && marketPriceSeriesStore.covers(LocalDateTime.now())) {
+            List<MarketPrice> latest = marketPriceSeriesStore.latest(alert.getProductName(), region, 1);
+            if (!latest.isEmpty()) {
+                alert.setReferencePrice(latest.get(0).getAveragePrice());
+            }
+        }
+
+        PriceAlert saved = priceAlertRepository.save(alert);
+        synchronized (indexes) {
+            index(saved);
+        }
+        return saved;
+    }
+
+    public List<PriceAlert> getAlerts(Long userId) {
+        return priceAlertRepository.findByUserIdOrderById(userId);
+    }
+
+    // False when the user has no such alert
+    public boolean delete(Long userId, Long alertId) {
+        PriceAlert alert = priceAlertRepository.findByIdAndUserId(alertId, userId).orElse(null);
+        if (alert == null) {
+            return false;
+        }
+        priceAlertRepository.delete(alert);
+        synchronized (indexes) {
+            PriceAlert indexed = alertsById.remove(alertId);
+            if (indexed != null) {
+                Map<String, PriceThresholdIndex> regions = indexes.get(indexed.getProductKey());
+                PriceThresholdIndex index = regions == null ? null : regions.get(indexed.getRegionKey());
+                if (index != null) {
+                    index.remove(indexed);
+                    if (index.size() == 0) {
+                        regions.remove(indexed.getRegionKey());
+                    }
+                    if (regions.isEmpty()) {
+                        indexes.remove(indexed.getProductKey());
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private void index(PriceAlert alert) {
+        indexes.computeIfAbsent(alert.getProductKey(), key -> new HashMap<>())
+            .computeIfAbsent(alert.getRegionKey(), key -> new PriceThresholdIndex())
+            .add(alert);
+        alertsById.put(alert.getId(), alert);
+    }
+
+    /**
+     * Runs committed prices through the alerts, oldest first, then stores the
+     * alerts' new state and any notifications, and wakes their owners.
+     * Evaluation and the write that follows happen under one lock, so state
+     * is written in the order it changed. Writes that failed before are
+     * retried first.
+     */
+    public void onPricesRecorded(List<MarketPrice> prices) {
+        List<MarketPrice> ordered = new ArrayList<>(prices);
+        ordered.sort(Comparator.comparing(MarketPrice::getRecordDate));
+        LocalDateTime now = LocalDateTime.now();
+
+        Set<Long> notifiedUsers = new HashSet<>();
+        synchronized (indexes) {
+            if (indexes.isEmpty()) {
+                return;
+            }
+            List<AlertTransition> transitions = new ArrayList<>();
+            for (MarketPrice price : ordered) {
+                Map<String, PriceThresholdIndex> regions = indexes.get(price.getProductKey());
+                if (regions == null) {
+                    continue;
+                }
+                pricesEvaluated.increment();
+                String regionKey = MarketPrice.keyOf(price.getRegion());
+                if (regionKey != null && !regionKey.isEmpty()) {
+                    PriceThresholdIndex index = regions.get(regionKey);
+                    if (index != null) {
+                        index.evaluate(price, now, transitions);
+                    }
+                }
+                PriceThresholdIndex allRegions = regions.get(MarketPriceRollup.ALL_REGIONS);
+                if (allRegions != null) {
+                    allRegions.evaluate(price, now, transitions);
+                }
+            }
+            if (transitions.isEmpty()) {
+                return;
+            }
+
+            List<AlertNotification> notifications = new ArrayList<>();
+            for (AlertTransition transition : transitions) {
+                if (transition.fired()) {
+                    notifications.add(new AlertNotification(transition.alert(), transition.price(), describe(transition)));
+                }
+            }
+            pendingWrites.addLast(new PendingWrite(transitions, notifications));
+            if (pendingWrites.size() > maxPendingWrites) {
+                PendingWrite dropped = pendingWrites.removeFirst();
+                System.err.println("Too many unstored price alert writes, dropping " + dropped.notifications().size()
+                    + " notifications");
+                notificationsDropped.add(dropped.notifications().size());
+            }
+            writePending(notifiedUsers);
+        }
+
+        for (Long userId : notifiedUsers) {
+            wake(userId);
+        }
+    }
+
+    // Retries writes left behind by a database failure, even when no new prices arrive
+    @Scheduled(fixedDelayString = "${app.priceAlertRetryMs:5000}", initialDelayString = "${app.priceAlertRetryMs:5000}")
+    public void retryPendingWrites() {
+        Set<Long> notifiedUsers = new HashSet<>();
+        synchronized (indexes) {
+            if (pendingWrites.isEmpty()) {
+                return;
+            }
+            writePending(notifiedUsers);
+        }
+        for (Long userId : notifiedUsers) {
+            wake(userId);
+        }
+    }
+
+    // Stores pending writes oldest first, stopping at the first failure; caller holds the indexes lock
+    private void writePending(Set<Long> notifiedUsers) {
+        // Runs after the prices' own commit, so it needs a transaction of its own
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        while (!pendingWrites.isEmpty()) {
+            PendingWrite write = pendingWrites.peekFirst();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    for (AlertTransition transition : write.transitions()) {
+                        priceAlertRepository.updateState(transition.alert().getId(), transition.armed(),
+                            transition.referencePrice(), transition.triggerCount(), transition.lastTriggeredAt());
+                    }
+                    alertNotificationRepository.saveAll(write.notifications());
+                });
+            } catch (DataIntegrityViolationException e) {
+                // Rejected for its content, so no retry would help; the writes behind it must not wait forever
+                pendingWrites.removeFirst();
+                writeFailures.increment();
+                System.err.println("Dropping " + write.notifications().size()
+                    + " price alert notifications rejected by the database: " + e.getMessage());
+                notificationsDropped.add(write.notifications().size());
+                continue;
+            } catch (RuntimeException e) {
+                writeFailures.increment();
+                // The rolled-back save left generated ids behind; the retry must insert them afresh
+                for (AlertNotification notification : write.notifications()) {
+                    notification.setId(null);
+                }
+                System.err.println("Could not store " + write.notifications().size()
+                    + " price alert notifications, will retry: " + e.getMessage());
+                return;
+            }
+            pendingWrites.removeFirst();
+            alertsFired.add(write.notifications().size());
+            for (AlertNotification notification : write.notifications()) {
+                notifiedUsers.add(notification.getUser().getId());
+            }
+        }
+    }
+
+    private String describe(AlertTransition transition) {
+        PriceAlert alert = transition.alert();
+        MarketPrice price = transition.price();
+        String where = price.getRegion() == null ? "" : " in " + price.getRegion();
+        return switch (alert.getCondition()) {
+            case ABOVE -> alert.getProductName() + where + " reached " + price.getAveragePrice()
+                + ", at or above your alert at " + alert.getThreshold();
+            case BELOW -> alert.getProductName() + where + " fell to " + price.getAveragePrice()
+                + ", at or below your alert at " + alert.getThreshold();
+            case PERCENT_MOVE -> alert.getProductName() + where + " moved to " + price.getAveragePrice()
+                + ", " + alert.getThreshold().stripTrailingZeros().toPlainString() + "% or more from "
+                + transition.movedFrom();
+        };
+    }
+
+    /**
+     * The user's notifications after {@code afterId}, oldest first. When there
+     * are none, the result completes as soon as one is stored, or empty after
+     * {@code waitSeconds}.
+     */
+    public DeferredResult<List<AlertNotification>> awaitNotifications(Long userId, long afterId, int waitSeconds) {
+        DeferredResult<List<AlertNotification>> result =
+            new DeferredResult<>(TimeUnit.SECONDS.toMillis(waitSeconds), List.of());
+        NotificationWaiter waiter = new NotificationWaiter(afterId, result);
+        if (waitSeconds > 0) {
+            // Registered before looking, so a notification stored in between still wakes it
+            waiters.computeIfAbsent(userId, key -> ConcurrentHashMap.newKeySet()).add(waiter);
+            result.onCompletion(() -> waiters.computeIfPresent(userId, (key, waiting) -> {
+                waiting.remove(waiter);
+                return waiting.isEmpty() ? null : waiting;
+            }));
+        }
+
+        List<AlertNotification> pending = getNotifications(userId, afterId);
+        if (!pending.isEmpty() || waitSeconds <= 0) {
+            result.setResult(pending);
+        }
+        return result;
+    }
+
+    private List<AlertNotification> getNotifications(Long userId, long afterId) {
+        return alertNotificationRepository.findByUserIdAndIdGreaterThanOrderById(
+            userId, afterId, Limit.of(notificationPageSize));
+    }
+
+    private void wake(Long userId) {
+        Set<NotificationWaiter> waiting = waiters.remove(userId);
+        if (waiting == null) {
+            return;
+        }
+        for (NotificationWaiter waiter : waiting) {
+            if (!waiter.result().isSetOrExpired()) {
+                waiter.result().setResult(getNotifications(userId, waiter.afterId()));
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        int alerts;
+        int pending;
+        synchronized (indexes) {
+            alerts = alertsById.size();
+            pending = pendingWrites.size();
+        }
+        int waiting = 0;
+        for (Set<NotificationWaiter> userWaiters : waiters.values()) {
+            waiting += userWaiters.size();
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("alerts", alerts);
+        stats.put("pricesEvaluated", pricesEvaluated.sum());
+        stats.put("alertsFired", alertsFired.sum());
+        stats.put("pendingWrites", pending);
+        stats.put("writeFailures", writeFailures.sum());
+        stats.put("notificationsDropped", notificationsDropped.sum());
+        stats.put("waitingRequests", waiting);
+        return stats;
+    }
+
+    private record PendingWrite(List<AlertTransition> transitions, List<AlertNotification> notifications) {}
+
+    private record NotificationWaiter(long afterId, DeferredResult<List<AlertNotification>> result) {}
+}
@@ -0,0 +1,170 @@
+package com.example.demo.service;
+
+import com.example.demo.model.AlertCondition;
+import com.example.demo.model.MarketPrice;
+import com.example.demo.model.PriceAlert;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The alerts watching one product in one region, keyed by the price at which
+ * each changes state. A price only visits the alerts whose level it crossed,
+ * so evaluating a tick costs a few ordered-map lookups however many alerts
+ * are registered. Not thread-safe; PriceAlertService serializes access.
+ */
+final class PriceThresholdIndex {
+
+    // ABOVE alerts waiting to fire and fired ones waiting to re-arm, by threshold
+    private final NavigableMap<BigDecimal, List<PriceAlert>> armedAbove = new TreeMap<>();
+    private final NavigableMap<BigDecimal, List<PriceAlert>> firedAbove = new TreeMap<>();
+
+    private final NavigableMap<BigDecimal, List<PriceAlert>> armedBelow = new TreeMap<>();
+    private final NavigableMap<BigDecimal, List<PriceAlert>> firedBelow = new TreeMap<>();
+
+    // PERCENT_MOVE alerts by the prices that would fire them
+    private final NavigableMap<BigDecimal, List<PriceAlert>> moveUpper = new TreeMap<>();
+    private final NavigableMap<BigDecimal, List<PriceAlert>> moveLower = new TreeMap<>();
+
+    // PERCENT_MOVE alerts created before any price was known
+    private final List<PriceAlert> unreferenced = new ArrayList<>();
+
+    private int size;
+    private LocalDateTime lastPriceTime;
+
+    void add(PriceAlert alert) {
+        switch (alert.getCondition()) {
+            case ABOVE -> put(alert.isArmed() ? armedAbove : firedAbove, alert.getThreshold(), alert);
+            case BELOW -> put(alert.isArmed() ? armedBelow : firedBelow, alert.getThreshold(), alert);
+            case PERCENT_MOVE -> {
+                if (alert.getReferencePrice() == null) {
+                    unreferenced.add(alert);
+                } else {
+                    put(moveUpper, alert.getUpperBound(), alert);
+                    put(moveLower, alert.getLowerBound(), alert);
+                }
+            }
+        }
+        size++;
+    }
+
+    void remove(PriceAlert alert) {
+        boolean removed = switch (alert.getCondition()) {
+            case ABOVE -> remove(armedAbove, alert.getThreshold(), alert) || remove(firedAbove, alert.getThreshold(), alert);
+            case BELOW -> remove(armedBelow, alert.getThreshold(), alert) || remove(firedBelow, alert.getThreshold(), alert);
+            case PERCENT_MOVE -> alert.getReferencePrice() == null
+                ? unreferenced.remove(alert)
+                : remove(moveUpper, alert.getUpperBound(), alert) & remove(moveLower, alert.getLowerBound(), alert);
+        };
+        if (removed) {
+            size--;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Applies one price and appends every alert whose state changed. Prices
+     * recorded before the newest one already seen are history rather than
+     * news, and are skipped.
+     */
+    void evaluate(MarketPrice price, LocalDateTime now, List<AlertTransition> transitions) {
+        if (lastPriceTime != null && price.getRecordDate().isBefore(lastPriceTime)) {
+            return;
+        }
+        lastPriceTime = price.getRecordDate();
+        BigDecimal value = price.getAveragePrice();
+
+        for (PriceAlert alert : drain(armedAbove.headMap(value, true))) {
+            fire(alert, price, null, now, transitions);
+            put(firedAbove, alert.getThreshold(), alert);
+        }
+        for (PriceAlert alert : drain(firedAbove.tailMap(value, false))) {
+            rearm(alert, price, transitions);
+            put(armedAbove, alert.getThreshold(), alert);
+        }
+
+        for (PriceAlert alert : drain(armedBelow.tailMap(value, true))) {
+            fire(alert, price, null, now, transitions);
+            put(firedBelow, alert.getThreshold(), alert);
+        }
+        for (PriceAlert alert : drain(firedBelow.headMap(value, false))) {
+            rearm(alert, price, transitions);
+            put(armedBelow, alert.getThreshold(), alert);
+        }
+
+        // Each moved alert sits in both bound maps; collect once, then re-key both entries
+        Set<PriceAlert> moved = Collections.newSetFromMap(new IdentityHashMap<>());
+        moved.addAll(drain(moveUpper.headMap(value, true)));
+        moved.addAll(drain(moveLower.tailMap(value, true)));
+        for (PriceAlert alert : moved) {
+            remove(moveUpper, alert.getUpperBound(), alert);
+            remove(moveLower, alert.getLowerBound(), alert);
+            BigDecimal movedFrom = alert.getReferencePrice();
+            alert.setReferencePrice(value);
+            fire(alert, price, movedFrom, now, transitions);
+            put(moveUpper, alert.getUpperBound(), alert);
+            put(moveLower, alert.getLowerBound(), alert);
+        }
+        for (PriceAlert alert : unreferenced) {
+            alert.setReferencePrice(value);
+            transitions.add(AlertTransition.of(alert, price, false, null));
+            put(moveUpper, alert.getUpperBound(), alert);
+            put(moveLower, alert.getLowerBound(), alert);
+        }
+        unreferenced.clear();
+    }
+
+    private void fire(PriceAlert alert, MarketPrice price, BigDecimal movedFrom, LocalDateTime now,
+                      List<AlertTransition> transitions) {
+        if (alert.getCondition() != AlertCondition.PERCENT_MOVE) {
+            alert.setArmed(false);
+        }
+        alert.setTriggerCount(alert.getTriggerCount() + 1);
+        alert.setLastTriggeredAt(now);
+        transitions.add(AlertTransition.of(alert, price, true, movedFrom));
+    }
+
+    private void rearm(PriceAlert alert, MarketPrice price, List<AlertTransition> transitions) {
+        alert.setArmed(true);
+        transitions.add(AlertTransition.of(alert, price, false, null));
+    }
+
+    private static Collection<PriceAlert> drain(NavigableMap<BigDecimal, List<PriceAlert>> range) {
+        if (range.isEmpty()) {
+            return List.of();
+        }
+        List<PriceAlert> alerts = new ArrayList<>();
+        for (List<PriceAlert> level : range.values()) {
+            alerts.addAll(level);
+        }
+        range.clear();
+        return alerts;
+    }
+
+    private static void put(Map<BigDecimal, List<PriceAlert>> levels, BigDecimal level, PriceAlert alert) {
+        levels.computeIfAbsent(level, key -> new ArrayList<>(1)).add(alert);
+    }
+
+    private static boolean remove(Map<BigDecimal, List<PriceAlert>> levels, BigDecimal level, PriceAlert alert) {
+        List<PriceAlert> alerts = levels.get(level);
+        if (alerts == null || !alerts.remove(alert)) {
+            return false;
+        }
+        if (alerts.isEmpty()) {
+            levels.remove(level);
+        }
+        return true;
+    }
+}
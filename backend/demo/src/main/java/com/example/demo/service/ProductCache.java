@@ -0,0 +1,137 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductView;
+import com.example.demo.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache of product views keyed by id, bounded by entry count
+ * (least recently used first out) and by a time-to-live. Every code path that
+ * writes a product row must call {@link #evict(Long)} afterwards.
+ */
+@Service
+public class ProductCache {
+
+    @Value("${app.productCacheMaxEntries:10000}")
+    private int maxEntries;
+
+    @Value("${app.productCacheTtlMs:300000}")
+    private long ttlMs;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    RequestCoalescer requestCoalescer;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    // Bumped on every invalidation so a load that raced with a write is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LinkedHashMap<Long, CacheEntry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CacheEntry> eldest) {
+            if (size() > maxEntries) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public Optional<ProductView> findById(Long id) {
+        long now = System.currentTimeMillis();
+
+        synchronized (entries) {
+            CacheEntry entry = entries.get(id);
+            if (entry != null) {
+                if (entry.expiresAt > now) {
+                    hits.increment();
+                    return Optional.of(entry.view);
+                }
+                entries.remove(id);
+                expirations.increment();
+            }
+        }
+
+        misses.increment();
+        long loadGeneration = generation.get();
+        // Keyed by generation too, so a miss after a write never joins a load that started before it
+        Optional<ProductView> loaded = requestCoalescer.execute("products.byId", List.of(id, loadGeneration),
+            () -> productRepository.findViewById(id));
+
+        loaded.ifPresent(view -> {
+            synchronized (entries) {
+                if (generation.get() == loadGeneration) {
+                    entries.put(id, new CacheEntry(view, now + ttlMs));
+                }
+            }
+        });
+        return loaded;
+    }
+
+    public void evict(Long id) {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            if (entries.remove(id) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    public void evictAll(Collection<Long> ids) {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            for (Long id : ids) {
+                if (entries.remove(id) != null) {
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlMs", ttlMs);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    private static class CacheEntry {
+        private final ProductView view;
+        private final long expiresAt;
+
+        CacheEntry(ProductView view, long expiresAt) {
+            this.view = view;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
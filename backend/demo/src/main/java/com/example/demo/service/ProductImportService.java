@@ -0,0 +1,265 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ImportReport;
+import com.example.demo.dto.ProductRequest;
+import com.example.demo.model.Product;
+import com.example.demo.model.User;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.search.ProductSearchIndex;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Imports product listings from a streamed CSV or NDJSON body. Rows are
+ * validated like {@code POST /api/products/add} and written in fixed-size
+ * chunks, each in its own transaction, so memory and transaction size stay
+ * bounded whatever the file size. A chunk that fails to save is retried row
+ * by row, so one bad row only rejects itself.
+ */
+@Service
+public class ProductImportService {
+
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private static final List<String> REQUIRED_COLUMNS = List.of(
+        "name", "description", "category", "pricePerUnit", "unit", "quantityAvailable", "location");
+
+    @Value("${app.productImportChunkSize:500}")
+    private int chunkSize;
+
+    @Value("${app.productImportMaxErrors:1000}")
+    private int maxErrors;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    MarketStatsService marketStatsService;
+
+    @Autowired
+    MarketReferencePrices marketReferencePrices;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    Validator validator;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    /**
+     * Reads every row of {@code body} and lists the farmer as the owner of the
+     * accepted ones. Throws IllegalArgumentException when the CSV header lacks
+     * a required column.
+     */
+    public ImportReport importProducts(InputStream body, MediaType contentType, User farmer) throws IOException {
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, charset));
+
+        ImportRun run = new ImportRun(farmer);
+        if (TEXT_CSV.isCompatibleWith(contentType)) {
+            readCsv(reader, run);
+        } else {
+            readNdjson(reader, run);
+        }
+        run.flush();
+        return run.report;
+    }
+
+    private void readCsv(BufferedReader reader, ImportRun run) throws IOException {
+        CsvRecordReader csv = new CsvRecordReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            return;
+        }
+        List<String> columns = header.stream().map(String::trim).toList();
+        for (String column : REQUIRED_COLUMNS) {
+            if (!columns.contains(column)) {
+                throw new IllegalArgumentException("Missing CSV column '" + column + "'");
+            }
+        }
+
+        ObjectReader rowReader = objectMapper.readerFor(ProductRequest.class);
+        while (true) {
+            List<String> record;
+            try {
+                record = csv.next();
+            } catch (IllegalArgumentException e) {
+                // Nothing after an unclosed quote can be split into rows
+                run.report.received();
+                run.report.reject(csv.getRecordLine(), e.getMessage());
+                return;
+            }
+            if (record == null) {
+                return;
+            }
+
+            run.report.received();
+            long line = csv.getRecordLine();
+            if (record.size() != columns.size()) {
+                run.report.reject(line, "Expected " + columns.size() + " fields but found " + record.size());
+                continue;
+            }
+
+            // Empty cells are left out so they bind as null, like a missing JSON property
+            ObjectNode row = objectMapper.createObjectNode();
+            for (int i = 0; i < columns.size(); i++) {
+                if (!record.get(i).isEmpty()) {
+                    row.put(columns.get(i), record.get(i));
+                }
+            }
+            try {
+                run.accept(line, rowReader.treeToValue(row, ProductRequest.class));
+            } catch (JsonProcessingException e) {
+                run.report.reject(line, describe(e));
+            }
+        }
+    }
+
+    private void readNdjson(BufferedReader reader, ImportRun run) throws IOException {
+        ObjectReader rowReader = objectMapper.readerFor(ProductRequest.class);
+        long line = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (text.isBlank()) {
+                continue;
+            }
+
+            run.report.received();
+            try {
+                run.accept(line, rowReader.readValue(text));
+            } catch (JsonProcessingException e) {
+                run.report.reject(line, describe(e));
+            }
+        }
+    }
+
+    private String describe(JsonProcessingException e) {
+        if (e instanceof JsonMappingException mapping && !mapping.getPath().isEmpty()) {
+            String field = mapping.getPath().get(mapping.getPath().size() - 1).getFieldName();
+            if (field != null) {
+                return "Invalid value for '" + field + "'";
+            }
+        }
+        return "Malformed row: " + e.getOriginalMessage();
+    }
+
+    private Product toProduct(ProductRequest request, User farmer) {
+        Product product = new Product(
+            request.getName(),
+            request.getDescription(),
+            request.getCategory(),
+            request.getPricePerUnit(),
+            request.getUnit(),
+            request.getQuantityAvailable(),
+            request.getLocation(),
+            farmer
+        );
+        product.setImageUrl(request.getImageUrl());
+        product.setHarvestDate(request.getHarvestDate());
+        product.setExpiryDate(request.getExpiryDate());
+        product.setQuality(request.getQuality());
+        product.setMarketDeviation(marketReferencePrices.deviationFor(
+            product.getName(), product.getLocation(), product.getPricePerUnit()));
+        return product;
+    }
+
+    // State of one import: the report so far and the rows waiting for the next chunk write
+    private class ImportRun {
+        final ImportReport report = new ImportReport(maxErrors);
+        final User farmer;
+        final List<Long> lines = new ArrayList<>();
+        final List<ProductRequest> requests = new ArrayList<>();
+
+        ImportRun(User farmer) {
+            this.farmer = farmer;
+        }
+
+        void accept(long line, ProductRequest request) {
+            Set<ConstraintViolation<ProductRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                report.reject(line, violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+                return;
+            }
+
+            lines.add(line);
+            requests.add(request);
+            if (requests.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (requests.isEmpty()) {
+                return;
+            }
+            try {
+                save(requests);
+            } catch (RuntimeException e) {
+                for (int i = 0; i < requests.size(); i++) {
+                    try {
+                        save(List.of(requests.get(i)));
+                    } catch (RuntimeException rowFailure) {
+                        // Drivers append the SQL to the message; the first line is the reason
+                        String reason = String.valueOf(NestedExceptionUtils.getMostSpecificCause(rowFailure).getMessage());
+                        report.reject(lines.get(i), "Could not be saved: " + reason.lines().findFirst().orElse(""));
+                    }
+                }
+            }
+            lines.clear();
+            requests.clear();
+        }
+
+        private void save(List<ProductRequest> chunk) {
+            List<Product> products = new TransactionTemplate(transactionManager).execute(status -> {
+                List<Product> saved = productRepository.saveAll(
+                    chunk.stream().map(request -> toProduct(request, farmer)).toList());
+                // Written and detached now, so a long import never grows the persistence context
+                entityManager.flush();
+                entityManager.clear();
+                return saved;
+            });
+            report.imported(products.size());
+            productSearchIndex.indexAll(products);
+            for (Product product : products) {
+                marketStatsService.productAdded(product.getCategory());
+            }
+        }
+    }
+}
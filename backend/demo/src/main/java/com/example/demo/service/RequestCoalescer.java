@@ -0,0 +1,126 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight for read queries: concurrent callers asking the same query
+ * with the same arguments share one execution and its result, so a burst of
+ * identical requests costs one database round trip. Nothing is cached; a
+ * call arriving after the shared execution finished runs the query again.
+ * Results are handed to every caller, so they must be treated as read-only,
+ * and a caller may see a result whose query started shortly before it
+ * arrived. Callers that need to observe their own writes must not coalesce.
+ */
+@Service
+public class RequestCoalescer {
+
+    // Keys whose collapsed calls are counted individually; beyond that only per query
+    @Value("${app.requestCoalescingTrackedKeys:1000}")
+    private int trackedKeys;
+
+    private final ConcurrentMap<QueryKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, QueryStats> queries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<QueryKey, LongAdder> collapsedByKey = new ConcurrentHashMap<>();
+
+    /**
+     * Runs {@code loader}, or joins an identical call already running.
+     * {@code query} names the query and {@code arguments} must implement
+     * equals and hashCode over everything the result depends on. An
+     * exception thrown by the shared execution is rethrown to every caller.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String query, Object arguments, Supplier<T> loader) {
+        QueryKey key = new QueryKey(query, arguments);
+        QueryStats stats = queries.computeIfAbsent(query, name -> new QueryStats());
+        stats.calls.increment();
+
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            stats.collapsed.increment();
+            countCollapsed(key);
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        stats.executions.increment();
+        try {
+            T result = loader.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private void countCollapsed(QueryKey key) {
+        LongAdder count = collapsedByKey.get(key);
+        if (count == null) {
+            if (collapsedByKey.size() >= trackedKeys) {
+                return;
+            }
+            count = collapsedByKey.computeIfAbsent(key, k -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> perQuery = new LinkedHashMap<>();
+        queries.forEach((query, stats) -> {
+            long calls = stats.calls.sum();
+            long collapsed = stats.collapsed.sum();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("calls", calls);
+            entry.put("executions", stats.executions.sum());
+            entry.put("collapsed", collapsed);
+            entry.put("collapsedRate", calls == 0 ? 0.0 : (double) collapsed / calls);
+            perQuery.put(query, entry);
+        });
+
+        List<Map.Entry<QueryKey, LongAdder>> hottest = new ArrayList<>(collapsedByKey.entrySet());
+        hottest.sort(Comparator.comparingLong((Map.Entry<QueryKey, LongAdder> entry) -> entry.getValue().sum()).reversed());
+        List<Map<String, Object>> hotKeys = new ArrayList<>();
+        for (Map.Entry<QueryKey, LongAdder> entry : hottest.subList(0, Math.min(20, hottest.size()))) {
+            Map<String, Object> hotKey = new LinkedHashMap<>();
+            hotKey.put("query", entry.getKey().query());
+            hotKey.put("arguments", String.valueOf(entry.getKey().arguments()));
+            hotKey.put("collapsed", entry.getValue().sum());
+            hotKeys.add(hotKey);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inFlight", inFlight.size());
+        stats.put("queries", perQuery);
+        stats.put("trackedKeys", collapsedByKey.size());
+        stats.put("maxTrackedKeys", trackedKeys);
+        stats.put("mostCollapsedKeys", hotKeys);
+        return stats;
+    }
+
+    private record QueryKey(String query, Object arguments) {}
+
+    private static final class QueryStats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder executions = new LongAdder();
+        final LongAdder collapsed = new LongAdder();
+    }
+}
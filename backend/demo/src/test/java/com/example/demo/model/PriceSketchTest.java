@@ -0,0 +1,168 @@
+package com.example.demo.model;
+
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PriceSketchTest {
+
+    private static final double[] QUANTILES = {0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 1};
+
+    // Log-normal around 50, with enough spread to reach prices below 1 (negative bucket indexes)
+    private static double[] prices(long seed, int n) {
+        Random random = new Random(seed);
+        double[] prices = new double[n];
+        for (int i = 0; i < n; i++) {
+            prices[i] = Math.exp(Math.log(50) + 1.5 * random.nextGaussian());
+        }
+        return prices;
+    }
+
+    private static PriceSketch sketchOf(double... prices) {
+        PriceSketch sketch = new PriceSketch();
+        for (double price : prices) {
+            sketch.add(price);
+        }
+        return sketch;
+    }
+
+    @Test
+    void emptySketchHasNoQuantiles() {
+        PriceSketch sketch = new PriceSketch();
+
+        assertThat(sketch.getCount()).isZero();
+        assertThat(sketch.quantile(0.5)).isNaN();
+    }
+
+    @Test
+    void nonPositivePricesAreIgnored() {
+        PriceSketch sketch = sketchOf(0, -5, Double.NaN, 10);
+
+        assertThat(sketch.getCount()).isEqualTo(1);
+        assertThat(sketch.quantile(0)).isCloseTo(10, withinAccuracy(10));
+    }
+
+    @Test
+    void quantilesStayWithinTheRelativeAccuracy() {
+        double[] prices = prices(42, 10_000);
+        PriceSketch sketch = sketchOf(prices);
+        double[] sorted = prices.clone();
+        Arrays.sort(sorted);
+
+        assertThat(sketch.getCount()).isEqualTo(prices.length);
+        for (double q : QUANTILES) {
+            double exact = sorted[(int) Math.floor(q * (sorted.length - 1))];
+            assertThat(sketch.quantile(q)).as("q=%s", q).isCloseTo(exact, withinAccuracy(exact));
+        }
+    }
+
+    @Test
+    void quantileRankIsClamped() {
+        PriceSketch sketch = sketchOf(1, 100);
+
+        assertThat(sketch.quantile(-1)).isEqualTo(sketch.quantile(0));
+        assertThat(sketch.quantile(2)).isEqualTo(sketch.quantile(1));
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        PriceSketch sketch = sketchOf(prices(7, 5_000));
+
+        PriceSketch decoded = PriceSketch.fromBytes(sketch.toBytes());
+
+        assertThat(decoded.getCount()).isEqualTo(sketch.getCount());
+        for (double q : QUANTILES) {
+            assertThat(decoded.quantile(q)).isEqualTo(sketch.quantile(q));
+        }
+        assertThat(decoded.toBytes()).isEqualTo(sketch.toBytes());
+    }
+
+    @Test
+    void bytesRoundTripNegativeIndexesAndMultiByteCounts() {
+        // Prices below 1 give negative bucket indexes (zigzag encoded); 300 copies need a two-byte varint
+        PriceSketch sketch = new PriceSketch();
+        for (int i = 0; i < 300; i++) {
+            sketch.add(0.001);
+        }
+        sketch.add(1e9);
+
+        PriceSketch decoded = PriceSketch.fromBytes(sketch.toBytes());
+
+        assertThat(decoded.getCount()).isEqualTo(301);
+        assertThat(decoded.quantile(0)).isCloseTo(0.001, withinAccuracy(0.001));
+        assertThat(decoded.quantile(0.99)).isEqualTo(decoded.quantile(0));
+        assertThat(decoded.quantile(1)).isCloseTo(1e9, withinAccuracy(1e9));
+    }
+
+    @Test
+    void emptyBytesDecodeToEmptySketch() {
+        assertThat(PriceSketch.fromBytes(null).getCount()).isZero();
+        assertThat(PriceSketch.fromBytes(new byte[0]).getCount()).isZero();
+        assertThat(PriceSketch.fromBytes(new PriceSketch().toBytes()).getCount()).isZero();
+    }
+
+    @Test
+    void unknownFormatIsRejected() {
+        byte[] bytes = sketchOf(10).toBytes();
+        bytes[0] = 99;
+
+        assertThatThrownBy(() -> PriceSketch.fromBytes(bytes)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void mergeEqualsSketchOfAllPrices() {
+        double[] low = prices(1, 2_000);
+        double[] high = prices(2, 3_000);
+        for (int i = 0; i < high.length; i++) {
+            high[i] *= 1_000;
+        }
+        double[] all = new double[low.length + high.length];
+        System.arraycopy(low, 0, all, 0, low.length);
+        System.arraycopy(high, 0, all, low.length, high.length);
+
+        PriceSketch merged = sketchOf(high);
+        merged.merge(sketchOf(low));
+
+        assertThat(merged.toBytes()).isEqualTo(sketchOf(all).toBytes());
+    }
+
+    @Test
+    void mergeOfDecodedDailySketchesKeepsTheAccuracy() {
+        double[] all = prices(3, 9_000);
+        PriceSketch range = new PriceSketch();
+        for (int day = 0; day < 3; day++) {
+            double[] daily = Arrays.copyOfRange(all, day * 3_000, (day + 1) * 3_000);
+            range.merge(PriceSketch.fromBytes(sketchOf(daily).toBytes()));
+        }
+        Arrays.sort(all);
+
+        assertThat(range.getCount()).isEqualTo(all.length);
+        for (double q : QUANTILES) {
+            double exact = all[(int) Math.floor(q * (all.length - 1))];
+            assertThat(range.quantile(q)).as("q=%s", q).isCloseTo(exact, withinAccuracy(exact));
+        }
+    }
+
+    @Test
+    void mergeWithEmptySketches() {
+        PriceSketch sketch = sketchOf(5, 50);
+        byte[] before = sketch.toBytes();
+
+        sketch.merge(new PriceSketch());
+        PriceSketch empty = new PriceSketch();
+        empty.merge(sketch);
+
+        assertThat(sketch.toBytes()).isEqualTo(before);
+        assertThat(empty.toBytes()).isEqualTo(before);
+    }
+
+    private static Offset<Double> withinAccuracy(double exact) {
+        // A hair of slack for the floating point in the bucket arithmetic
+        return Offset.offset(exact * PriceSketch.RELATIVE_ACCURACY * (1 + 1e-9));
+    }
+}
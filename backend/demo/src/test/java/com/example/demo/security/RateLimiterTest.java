@@ -0,0 +1,182 @@
+package com.example.demo.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTest {
+
+    // Every group gets the same limits, so the tests can pick whichever route reads best
+    private static RateLimiter limiter(int perMinute, int burst, int maxBuckets) {
+        RateLimiter limiter = new RateLimiter();
+        for (String group : new String[] {"search", "market", "orders", "auth"}) {
+            ReflectionTestUtils.setField(limiter, group + "PerMinute", perMinute);
+            ReflectionTestUtils.setField(limiter, group + "Burst", burst);
+        }
+        ReflectionTestUtils.setField(limiter, "maxBuckets", maxBuckets);
+        limiter.init();
+        return limiter;
+    }
+
+    private static MockHttpServletRequest request(String method, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr("10.0.0.1");
+        return request;
+    }
+
+    private static MockHttpServletRequest createOrder() {
+        return request("POST", "/api/orders/create");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> groupStats(RateLimiter limiter, String group) {
+        return (Map<String, Object>) ((Map<String, Object>) limiter.getStats().get("groups")).get(group);
+    }
+
+    @Test
+    void onlyLimitedRoutesAreChecked() {
+        RateLimiter limiter = limiter(60, 5, 100);
+
+        assertThat(limiter.check(request("GET", "/api/products/all"), null)).isNull();
+        MockHttpServletRequest blankSearch = request("GET", "/api/products/all");
+        blankSearch.setParameter("search", "  ");
+        assertThat(limiter.check(blankSearch, null)).isNull();
+        assertThat(limiter.check(request("GET", "/api/orders/create"), null)).isNull();
+        assertThat(limiter.check(request("GET", "/api/products/1"), null)).isNull();
+
+        MockHttpServletRequest search = request("GET", "/api/products/all");
+        search.setParameter("search", "tomato");
+        assertThat(limiter.check(search, null)).isNotNull();
+        assertThat(limiter.check(request("GET", "/api/market/prices"), null)).isNotNull();
+        assertThat(limiter.check(createOrder(), null)).isNotNull();
+        assertThat(limiter.check(request("POST", "/api/auth/signin"), null)).isNotNull();
+    }
+
+    @Test
+    void contextPathIsIgnoredWhenMatching() {
+        RateLimiter limiter = limiter(60, 5, 100);
+        MockHttpServletRequest request = request("POST", "/shop/api/auth/signin");
+        request.setContextPath("/shop");
+
+        assertThat(limiter.check(request, null)).isNotNull();
+    }
+
+    @Test
+    void burstIsAllowedThenLimited() {
+        // One request a minute, so nothing refills while the test runs
+        RateLimiter limiter = limiter(1, 3, 100);
+
+        RateLimiter.Decision first = limiter.check(createOrder(), 1L);
+        assertThat(first.allowed()).isTrue();
+        assertThat(first.limit()).isEqualTo(3);
+        assertThat(first.remaining()).isEqualTo(2);
+        assertThat(first.resetSeconds()).isEqualTo(60);
+        assertThat(first.retryAfterSeconds()).isZero();
+
+        RateLimiter.Decision second = limiter.check(createOrder(), 1L);
+        assertThat(second.allowed()).isTrue();
+        assertThat(second.remaining()).isEqualTo(1);
+        assertThat(second.resetSeconds()).isEqualTo(120);
+
+        RateLimiter.Decision third = limiter.check(createOrder(), 1L);
+        assertThat(third.allowed()).isTrue();
+        assertThat(third.remaining()).isZero();
+        assertThat(third.resetSeconds()).isEqualTo(180);
+
+        RateLimiter.Decision limited = limiter.check(createOrder(), 1L);
+        assertThat(limited.allowed()).isFalse();
+        assertThat(limited.limit()).isEqualTo(3);
+        assertThat(limited.remaining()).isZero();
+        assertThat(limited.resetSeconds()).isEqualTo(180);
+        // The next token comes one interval after the bucket fell below full
+        assertThat(limited.retryAfterSeconds()).isEqualTo(60);
+
+        // Refused requests take no token
+        assertThat(limiter.check(createOrder(), 1L).resetSeconds()).isEqualTo(180);
+
+        Map<String, Object> stats = groupStats(limiter, "orders");
+        assertThat(stats.get("allowed")).isEqualTo(3L);
+        assertThat(stats.get("limited")).isEqualTo(2L);
+    }
+
+    @Test
+    void tokensRefillAtTheConfiguredRate() throws InterruptedException {
+        // A token a second, two at most
+        RateLimiter limiter = limiter(60, 2, 100);
+        assertThat(limiter.check(createOrder(), 1L).allowed()).isTrue();
+        assertThat(limiter.check(createOrder(), 1L).allowed()).isTrue();
+        assertThat(limiter.check(createOrder(), 1L).allowed()).isFalse();
+
+        Thread.sleep(1_100);
+
+        RateLimiter.Decision refilled = limiter.check(createOrder(), 1L);
+        assertThat(refilled.allowed()).isTrue();
+        assertThat(refilled.remaining()).isZero();
+        assertThat(limiter.check(createOrder(), 1L).allowed()).isFalse();
+    }
+
+    @Test
+    void clientsAndGroupsHaveSeparateBuckets() {
+        RateLimiter limiter = limiter(1, 1, 100);
+        assertThat(limiter.check(createOrder(), 1L).allowed()).isTrue();
+        assertThat(limiter.check(createOrder(), 1L).allowed()).isFalse();
+
+        assertThat(limiter.check(createOrder(), 2L).allowed()).isTrue();
+        // Anonymous requests are keyed by address
+        assertThat(limiter.check(createOrder(), null).allowed()).isTrue();
+        MockHttpServletRequest otherAddress = createOrder();
+        otherAddress.setRemoteAddr("10.0.0.2");
+        assertThat(limiter.check(otherAddress, null).allowed()).isTrue();
+        assertThat(limiter.check(request("POST", "/api/auth/signin"), 1L).allowed()).isTrue();
+    }
+
+    @Test
+    void sweepDropsRefilledBuckets() throws InterruptedException {
+        RateLimiter limiter = limiter(1, 1, 100);
+        limiter.check(createOrder(), 1L);
+        // A token every millisecond; this bucket refills almost at once
+        RateLimiter fast = limiter(60_000, 1, 100);
+        fast.check(createOrder(), 1L);
+        Thread.sleep(20);
+
+        limiter.sweep();
+        fast.sweep();
+
+        assertThat(limiter.getStats().get("buckets")).isEqualTo(1);
+        assertThat(fast.getStats().get("buckets")).isEqualTo(0);
+    }
+
+    @Test
+    void fullTableEvictsATenthOfTheRoom() {
+        RateLimiter limiter = limiter(1, 1, 20);
+        for (long user = 0; user < 20; user++) {
+            limiter.check(createOrder(), user);
+        }
+        assertThat(limiter.getStats().get("buckets")).isEqualTo(20);
+
+        limiter.check(createOrder(), 100L);
+
+        // Two dropped to get back to 18, then the new client takes one
+        assertThat(limiter.getStats().get("buckets")).isEqualTo(19);
+        assertThat(limiter.getStats().get("evicted")).isEqualTo(2L);
+    }
+
+    @Test
+    void fullTableDropsRefilledBucketsFirst() throws InterruptedException {
+        RateLimiter limiter = limiter(60_000, 1, 20);
+        for (long user = 0; user < 20; user++) {
+            limiter.check(createOrder(), user);
+        }
+        Thread.sleep(20);
+
+        RateLimiter.Decision decision = limiter.check(createOrder(), 100L);
+
+        assertThat(decision.allowed()).isTrue();
+        assertThat(limiter.getStats().get("buckets")).isEqualTo(1);
+        assertThat(limiter.getStats().get("evicted")).isEqualTo(0L);
+    }
+}
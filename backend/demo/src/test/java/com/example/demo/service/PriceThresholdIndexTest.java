@@ -0,0 +1,253 @@
+package com.example.demo.service;
+
+import com.example.demo.model.AlertCondition;
+import com.example.demo.model.MarketPrice;
+import com.example.demo.model.PriceAlert;
+import com.example.demo.model.ProductCategory;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriceThresholdIndexTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private final PriceThresholdIndex index = new PriceThresholdIndex();
+    private int minute;
+
+    private static PriceAlert alert(AlertCondition condition, String threshold) {
+        return new PriceAlert(null, "Tomato", null, condition, new BigDecimal(threshold));
+    }
+
+    private static PriceAlert moveAlert(String percent, String referencePrice) {
+        PriceAlert alert = alert(AlertCondition.PERCENT_MOVE, percent);
+        alert.setReferencePrice(referencePrice == null ? null : new BigDecimal(referencePrice));
+        return alert;
+    }
+
+    private static MarketPrice price(String value, LocalDateTime recordDate) {
+        BigDecimal price = new BigDecimal(value);
+        MarketPrice marketPrice = new MarketPrice(ProductCategory.VEGETABLES, "Tomato", price, price, price, null, 1);
+        marketPrice.setRecordDate(recordDate);
+        return marketPrice;
+    }
+
+    // Each tick is a minute after the previous one
+    private List<AlertTransition> tick(String value) {
+        return evaluate(price(value, START.plusMinutes(minute++)));
+    }
+
+    private List<AlertTransition> evaluate(MarketPrice price) {
+        List<AlertTransition> transitions = new ArrayList<>();
+        index.evaluate(price, START, transitions);
+        return transitions;
+    }
+
+    @Test
+    void aboveFiresOnceAtThresholdAndRearmsBelowIt() {
+        PriceAlert alert = alert(AlertCondition.ABOVE, "50");
+        index.add(alert);
+
+        assertThat(tick("49.99")).isEmpty();
+
+        List<AlertTransition> fired = tick("50");
+        assertThat(fired).singleElement().satisfies(transition -> {
+            assertThat(transition.alert()).isSameAs(alert);
+            assertThat(transition.fired()).isTrue();
+            assertThat(transition.armed()).isFalse();
+            assertThat(transition.triggerCount()).isEqualTo(1);
+            assertThat(transition.lastTriggeredAt()).isEqualTo(START);
+        });
+
+        // Still above, and back at the threshold: fired alerts stay quiet
+        assertThat(tick("70")).isEmpty();
+        assertThat(tick("50")).isEmpty();
+
+        List<AlertTransition> rearmed = tick("49");
+        assertThat(rearmed).singleElement().satisfies(transition -> {
+            assertThat(transition.fired()).isFalse();
+            assertThat(transition.armed()).isTrue();
+            assertThat(transition.triggerCount()).isEqualTo(1);
+        });
+
+        assertThat(tick("55")).singleElement().satisfies(transition -> {
+            assertThat(transition.fired()).isTrue();
+            assertThat(transition.triggerCount()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void belowFiresOnceAtThresholdAndRearmsAboveIt() {
+        PriceAlert alert = alert(AlertCondition.BELOW, "20");
+        index.add(alert);
+
+        assertThat(tick("20.01")).isEmpty();
+        assertThat(tick("20")).singleElement().satisfies(transition -> {
+            assertThat(transition.fired()).isTrue();
+            assertThat(transition.armed()).isFalse();
+        });
+        assertThat(tick("5")).isEmpty();
+        assertThat(tick("20")).isEmpty();
+
+        assertThat(tick("21")).singleElement().satisfies(transition -> {
+            assertThat(transition.fired()).isFalse();
+            assertThat(transition.armed()).isTrue();
+        });
+        assertThat(tick("19")).singleElement().satisfies(transition -> assertThat(transition.fired()).isTrue());
+        assertThat(alert.getTriggerCount()).isEqualTo(2);
+    }
+
+    @Test
+    void onlyCrossedThresholdsAreVisited() {
+        PriceAlert at50 = alert(AlertCondition.ABOVE, "50");
+        PriceAlert at60 = alert(AlertCondition.ABOVE, "60");
+        PriceAlert at70 = alert(AlertCondition.ABOVE, "70");
+        PriceAlert below40 = alert(AlertCondition.BELOW, "40");
+        index.add(at50);
+        index.add(at60);
+        index.add(at70);
+        index.add(below40);
+
+        assertThat(tick("65")).extracting(AlertTransition::alert).containsExactlyInAnyOrder(at50, at60);
+        assertThat(at70.isArmed()).isTrue();
+        assertThat(below40.isArmed()).isTrue();
+
+        // Falling to 55 re-arms only the alert at 60
+        assertThat(tick("55")).extracting(AlertTransition::alert).containsExactly(at60);
+        assertThat(at50.isArmed()).isFalse();
+        assertThat(at60.isArmed()).isTrue();
+    }
+
+    @Test
+    void disarmedAlertsAreIndexedAsFired() {
+        PriceAlert alert = alert(AlertCondition.ABOVE, "50");
+        alert.setArmed(false);
+        index.add(alert);
+
+        assertThat(tick("60")).isEmpty();
+        assertThat(tick("40")).singleElement().satisfies(transition -> assertThat(transition.armed()).isTrue());
+    }
+
+    @Test
+    void percentMoveFiresOnEitherBoundAndRebasesOnThePrice() {
+        PriceAlert alert = moveAlert("10", "100");
+        index.add(alert);
+
+        assertThat(tick("109.99")).isEmpty();
+        assertThat(tick("90.01")).isEmpty();
+
+        assertThat(tick("110")).singleElement().satisfies(transition -> {
+            assertThat(transition.fired()).isTrue();
+            assertThat(transition.movedFrom()).isEqualByComparingTo("100");
+            assertThat(transition.referencePrice()).isEqualByComparingTo("110");
+            // Moves never disarm
+            assertThat(transition.armed()).isTrue();
+        });
+
+        // Bounds are now 99 and 121; the old ones no longer fire
+        assertThat(tick("100")).isEmpty();
+        assertThat(tick("120")).isEmpty();
+
+        assertThat(tick("99")).singleElement().satisfies(transition -> {
+            assertThat(transition.movedFrom()).isEqualByComparingTo("110");
+            assertThat(transition.referencePrice()).isEqualByComparingTo("99");
+            assertThat(transition.triggerCount()).isEqualTo(2);
+        });
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void rebasedAlertLeavesNoEntryUnderItsOldBounds() {
+        PriceAlert alert = moveAlert("10", "100");
+        index.add(alert);
+        tick("110");
+
+        index.remove(alert);
+
+        assertThat(index.size()).isZero();
+        // An entry left under the old lower bound of 90 would still fire here
+        assertThat(tick("50")).isEmpty();
+        assertThat(tick("500")).isEmpty();
+    }
+
+    @Test
+    void unreferencedAlertTakesTheFirstPriceAsReferenceWithoutFiring() {
+        PriceAlert alert = moveAlert("10", null);
+        index.add(alert);
+
+        assertThat(tick("40")).singleElement().satisfies(transition -> {
+            assertThat(transition.fired()).isFalse();
+            assertThat(transition.referencePrice()).isEqualByComparingTo("40");
+        });
+        assertThat(tick("43")).isEmpty();
+        assertThat(tick("44")).singleElement().satisfies(transition -> {
+            assertThat(transition.fired()).isTrue();
+            assertThat(transition.movedFrom()).isEqualByComparingTo("40");
+        });
+    }
+
+    @Test
+    void pricesOlderThanTheNewestSeenAreSkipped() {
+        PriceAlert alert = alert(AlertCondition.ABOVE, "50");
+        index.add(alert);
+        assertThat(evaluate(price("40", START.plusMinutes(10)))).isEmpty();
+
+        assertThat(evaluate(price("60", START.plusMinutes(5)))).isEmpty();
+        assertThat(alert.isArmed()).isTrue();
+
+        // Same time as the newest is not late
+        assertThat(evaluate(price("60", START.plusMinutes(10)))).hasSize(1);
+    }
+
+    @Test
+    void transitionsKeepTheStateOfTheirMoment() {
+        PriceAlert alert = alert(AlertCondition.ABOVE, "50");
+        index.add(alert);
+
+        AlertTransition first = tick("60").get(0);
+        tick("40");
+        tick("60");
+
+        assertThat(alert.getTriggerCount()).isEqualTo(2);
+        assertThat(first.triggerCount()).isEqualTo(1);
+        assertThat(first.armed()).isFalse();
+    }
+
+    @Test
+    void removedAlertsNoLongerFireInAnyState() {
+        PriceAlert armed = alert(AlertCondition.ABOVE, "50");
+        PriceAlert fired = alert(AlertCondition.BELOW, "30");
+        PriceAlert moving = moveAlert("10", "100");
+        PriceAlert unreferenced = moveAlert("10", null);
+        index.add(armed);
+        index.add(fired);
+        index.add(moving);
+        index.add(unreferenced);
+        tick("25");
+        // `fired` is now disarmed, `unreferenced` measures from 25 and `moving` from 25 as well
+        assertThat(fired.isArmed()).isFalse();
+
+        for (PriceAlert alert : List.of(armed, fired, moving, unreferenced)) {
+            index.remove(alert);
+        }
+
+        assertThat(index.size()).isZero();
+        assertThat(tick("60")).isEmpty();
+        assertThat(tick("10")).isEmpty();
+    }
+
+    @Test
+    void removingAnUnknownAlertChangesNothing() {
+        index.add(alert(AlertCondition.ABOVE, "50"));
+
+        index.remove(alert(AlertCondition.ABOVE, "50"));
+        index.remove(moveAlert("5", "10"));
+
+        assertThat(index.size()).isEqualTo(1);
+    }
+}
@@ -1,6 +1,7 @@
 import axios from 'axios';
 
-const API_URL = 'http://localhost:8080/api/auth/';
+const BACKEND_URL = 'http://localhost:8080/api/';
+const API_URL = BACKEND_URL + 'auth/';
 
 // Create axios instance with default config
 const api = axios.create({
@@ -10,38 +11,83 @@ const api = axios.create({
   },
 });
 
-// Add token to requests if available
-api.interceptors.request.use(
-  (config) => {
-    const token = localStorage.getItem('token');
-    if (token) {
-      config.headers.Authorization = `Bearer ${token}`;
-    }
-    return config;
-  },
-  (error) => {
-    return Promise.reject(error);
+const requestUrl = (config) => (config.baseURL && !/^https?:/.test(config.url) ? config.baseURL : '') + (config.url || '');
+
+// Refreshing is not attempted for the calls that hand out tokens
+const isTokenRequest = (config) => /auth\/(signin|signup|refresh)$/.test(requestUrl(config));
+
+// Add token to backend requests if available
+const attachToken = (config) => {
+  const token = localStorage.getItem('token');
+  if (token && requestUrl(config).startsWith(BACKEND_URL)) {
+    config.headers.Authorization = `Bearer ${token}`;
+  }
+  return config;
+};
+
+const signOutLocally = () => {
+  localStorage.removeItem('token');
+  localStorage.removeItem('refreshToken');
+  localStorage.removeItem('user');
+  window.location.href = '/login';
+};
+
+// One refresh at a time: refresh tokens work once, so parallel 401s must share the new pair
+let refreshing = null;
+const refreshTokens = () => {
+  if (!refreshing) {
+    const refreshToken = localStorage.getItem('refreshToken');
+    refreshing = axios
+      .post(API_URL + 'refresh', { refreshToken })
+      .then((response) => {
+        localStorage.setItem('token', response.data.token);
+        localStorage.setItem('refreshToken', response.data.refreshToken);
+        return response.data.token;
+      })
+      .finally(() => {
+        refreshing = null;
+      });
+  }
+  return refreshing;
+};
+
+/**
+ * Access tokens are short-lived: on a 401, trade the refresh token for new
+ * ones and retry once. The auth client signs out on any 401 it cannot
+ * recover from; other calls only when a refresh was tried and failed, so
+ * pages used without signing in keep their own error handling.
+ */
+const handleExpiredToken = (client, signOutWithoutRefresh) => async (err) => {
+  const original = err.config;
+  if (err.response?.status !== 401 || !original || original._retry) {
+    return Promise.reject(err);
   }
-);
+  original._retry = true;
 
-// Handle token expiration
-api.interceptors.response.use(
-  (res) => {
-    return res;
-  },
-  async (err) => {
-    const original = err.config;
-
-    if (err.response?.status === 401 && !original._retry) {
-      original._retry = true;
-      localStorage.removeItem('token');
-      localStorage.removeItem('user');
-      window.location.href = '/login';
+  if (!isTokenRequest(original) && localStorage.getItem('refreshToken')) {
+    try {
+      const token = await refreshTokens();
+      original.headers.Authorization = `Bearer ${token}`;
+      return client(original);
+    } catch (refreshError) {
+      console.log('❌ Token refresh failed:', refreshError.message);
+      signOutLocally();
+      return Promise.reject(err);
     }
+  }
 
-    return Promise.reject(err);
+  if (signOutWithoutRefresh) {
+    signOutLocally();
   }
-);
+  return Promise.reject(err);
+};
+
+api.interceptors.request.use(attachToken, (error) => Promise.reject(error));
+api.interceptors.response.use((res) => res, handleExpiredToken(api, true));
+
+// The dashboards call the backend through the global axios instance
+axios.interceptors.request.use(attachToken, (error) => Promise.reject(error));
+axios.interceptors.response.use((res) => res, handleExpiredToken(axios, false));
 
 class AuthService {
   async login(email, password, userType = 'FARMER') {
@@ -58,6 +104,7 @@ class AuthService {
 
       if (response.data.token) {
         localStorage.setItem('token', response.data.token);
+        localStorage.setItem('refreshToken', response.data.refreshToken);
         const userObj = {
           id: response.data.id,
           name: response.data.name,
@@ -144,7 +191,14 @@ class AuthService {
   }
 
   logout() {
+    const token = localStorage.getItem('token');
+    const refreshToken = localStorage.getItem('refreshToken');
+    if (token) {
+      // Revoke both tokens server-side; local sign-out does not wait for it
+      api.post('signout', { refreshToken }, { headers: { Authorization: `Bearer ${token}` } }).catch(() => {});
+    }
     localStorage.removeItem('token');
+    localStorage.removeItem('refreshToken');
     localStorage.removeItem('user');
   }
 